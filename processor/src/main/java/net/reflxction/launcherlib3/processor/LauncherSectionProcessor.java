@@ -0,0 +1,761 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a streaming Gson {@code TypeAdapter} for every type annotated with {@code @LauncherSection}, and a
+ * {@code TypeAdapterFactory} which registers all of them.
+ * <p>
+ * The generated adapters bind the fields in the order they are declared, and honor {@code @SerializedName} and
+ * {@code @JsonAdapter} like Gson's reflective adapter does, while static and transient fields are skipped. The
+ * fields themselves stay private: an object is read into local variables and created through the non-private
+ * constructor whose parameters are the bound fields in declaration order, and it is written through the non-private
+ * getter of every field. The getter is the method marked with {@code @FieldGetter} for the field, or else the one
+ * named after it ({@code getName()}, {@code isName()} for booleans, or {@code name()}) which returns the exact type
+ * of the field. A marked getter of another type is written as that type. A class without them is reported as an
+ * error. String fields marked with {@code @Deduplicate}, directly or through their type, are read through the
+ * shared string pool.
+ */
+@SupportedAnnotationTypes(LauncherSectionProcessor.LAUNCHER_SECTION)
+public class LauncherSectionProcessor extends AbstractProcessor {
+
+    /**
+     * The annotation which marks the types to generate adapters for
+     */
+    static final String LAUNCHER_SECTION = "net.reflxction.launcherlib3.launcher.LauncherSection";
+
+    /**
+     * The generated factory which registers every generated adapter
+     */
+    static final String FACTORY = "net.reflxction.launcherlib3.adapter.LauncherSectionAdapters";
+
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+
+    private static final String JSON_ADAPTER = "com.google.gson.annotations.JsonAdapter";
+
+    private static final String DEDUPLICATE = "net.reflxction.launcherlib3.adapter.Deduplicate";
+
+    private static final String FIELD_GETTER = "net.reflxction.launcherlib3.adapter.FieldGetter";
+
+    private static final String TYPE_ADAPTER = "com.google.gson.TypeAdapter";
+
+    private static final String TYPE_ADAPTER_FACTORY = "com.google.gson.TypeAdapterFactory";
+
+    /**
+     * Whether the factory was generated already. It is generated in the first round with annotated types.
+     */
+    private boolean generated;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(LAUNCHER_SECTION);
+        if (annotation == null || generated) {
+            return false;
+        }
+        List<TypeElement> types = new ArrayList<>();
+        for (Element element : round.getElementsAnnotatedWith(annotation)) {
+            TypeElement type = (TypeElement) element;
+            try {
+                if (type.getKind() == ElementKind.ENUM) {
+                    writeEnumAdapter(type);
+                } else if (type.getKind() == ElementKind.CLASS) {
+                    if (!writeClassAdapter(type)) {
+                        continue;
+                    }
+                } else {
+                    error(type, "@LauncherSection can only be used on classes and enums");
+                    continue;
+                }
+                types.add(type);
+            } catch (IOException e) {
+                error(type, "Unable to write the adapter: " + e);
+            }
+        }
+        if (!types.isEmpty()) {
+            generated = true;
+            try {
+                writeFactory(types);
+            } catch (IOException e) {
+                error(types.get(0), "Unable to write the adapter factory: " + e);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the adapter of the given class
+     *
+     * @param type The annotated class
+     * @return Whether the adapter was written, or if the class cannot be bound
+     */
+    private boolean writeClassAdapter(TypeElement type) throws IOException {
+        boolean valid = true;
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(type, "Classes with generated adapters cannot be abstract");
+            valid = false;
+        }
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+                fields.add(field);
+            }
+        }
+        if (!hasConstructor(type, fields)) {
+            error(type, "Classes with generated adapters need a non-private constructor whose parameters are the "
+                    + "bound fields, in the order they are declared");
+            valid = false;
+        }
+        Map<String, ExecutableElement> marked = markedGetters(type, fields);
+        if (marked == null) {
+            valid = false;
+            marked = Collections.emptyMap();
+        }
+        Map<VariableElement, ExecutableElement> getters = new HashMap<>();
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            ExecutableElement getter = marked.containsKey(name) ? marked.get(name) : getter(type, field);
+            if (getter == null) {
+                error(field, "Fields bound by generated adapters need a non-private getter of the same type: "
+                        + "get" + capitalize(name) + "(), is" + capitalize(name) + "() or " + name + "(), "
+                        + "or a getter marked with @FieldGetter(\"" + name + "\")");
+                valid = false;
+            }
+            getters.put(field, getter);
+        }
+        if (!valid) {
+            return false;
+        }
+
+        String className = type.getQualifiedName().toString();
+        String packageName = packageOf(type);
+        String adapterName = adapterName(type);
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName + '.' + adapterName, type).openWriter())) {
+            header(out, packageName, type);
+            out.println("public final class " + adapterName + " extends com.google.gson.TypeAdapter<" + className + "> {");
+            out.println();
+            List<VariableElement> delegated = new ArrayList<>();
+            for (VariableElement field : fields) {
+                if (jsonAdapter(field) != null || !isDirect(field.asType())) {
+                    delegated.add(field);
+                    TypeMirror values = mapValues(field);
+                    out.println("    private final com.google.gson.TypeAdapter<" + boxed(values == null ? field.asType() : values)
+                            + "> " + field.getSimpleName() + ";");
+                    out.println();
+                }
+            }
+            List<VariableElement> converted = new ArrayList<>();
+            for (VariableElement field : fields) {
+                TypeMirror written = getters.get(field).getReturnType();
+                if (mapValues(field) == null && !isDirect(written)
+                        && !processingEnv.getTypeUtils().isSameType(written, field.asType())) {
+                    converted.add(field);
+                    out.println("    private final com.google.gson.TypeAdapter<" + boxed(written) + "> "
+                            + writeAdapter(field) + ";");
+                    out.println();
+                }
+            }
+            out.println("    public " + adapterName + "(com.google.gson.Gson gson) {");
+            for (VariableElement field : delegated) {
+                out.println("        this." + field.getSimpleName() + " = " + delegate(field) + ";");
+            }
+            for (VariableElement field : converted) {
+                out.println("        this." + writeAdapter(field) + " = gson.getAdapter(new com.google.gson.reflect.TypeToken<"
+                        + boxed(getters.get(field).getReturnType()) + ">() {});");
+            }
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public void write(com.google.gson.stream.JsonWriter out, " + className + " value) throws java.io.IOException {");
+            out.println("        if (value == null) {");
+            out.println("            out.nullValue();");
+            out.println("            return;");
+            out.println("        }");
+            out.println("        out.beginObject();");
+            for (VariableElement field : fields) {
+                String name = field.getSimpleName().toString();
+                ExecutableElement getter = getters.get(field);
+                String accessor = "value." + getter.getSimpleName() + "()";
+                out.println("        out.name(" + literal(names(field).get(0)) + ");");
+                if (mapValues(field) != null) {
+                    out.println("        if (" + accessor + " == null) {");
+                    out.println("            out.nullValue();");
+                    out.println("        } else {");
+                    out.println("            out.beginObject();");
+                    out.println("            for (java.util.Map.Entry<java.lang.String, " + mapValues(field) + "> entry : "
+                            + accessor + ".entrySet()) {");
+                    out.println("                out.name(java.lang.String.valueOf(entry.getKey()));");
+                    out.println("                this." + name + ".write(out, entry.getValue());");
+                    out.println("            }");
+                    out.println("            out.endObject();");
+                    out.println("        }");
+                } else if (converted.contains(field)) {
+                    out.println("        this." + writeAdapter(field) + ".write(out, " + accessor + ");");
+                } else if (!processingEnv.getTypeUtils().isSameType(getter.getReturnType(), field.asType())) {
+                    out.println("        out.value(" + accessor + ");");
+                } else if (delegated.contains(field)) {
+                    out.println("        this." + name + ".write(out, " + accessor + ");");
+                } else {
+                    out.println("        out.value(" + accessor + ");");
+                }
+            }
+            out.println("        out.endObject();");
+            out.println("    }");
+            out.println();
+
+            out.println("    @Override");
+            out.println("    public " + className + " read(com.google.gson.stream.JsonReader in) throws java.io.IOException {");
+            out.println("        if (in.peek() == com.google.gson.stream.JsonToken.NULL) {");
+            out.println("            in.nextNull();");
+            out.println("            return null;");
+            out.println("        }");
+            for (VariableElement field : fields) {
+                out.println("        " + field.asType() + " " + field.getSimpleName() + " = " + defaultValue(field.asType()) + ";");
+            }
+            out.println("        in.beginObject();");
+            out.println("        while (in.hasNext()) {");
+            out.println("            switch (in.nextName()) {");
+            for (VariableElement field : fields) {
+                for (String name : names(field)) {
+                    out.println("                case " + literal(name) + ":");
+                }
+                if (mapValues(field) != null) {
+                    writeMapRead(out, field);
+                } else {
+                    out.println("                    " + field.getSimpleName() + " = " + read(field, delegated.contains(field)) + ";");
+                    out.println("                    break;");
+                }
+            }
+            out.println("                default:");
+            out.println("                    in.skipValue();");
+            out.println("            }");
+            out.println("        }");
+            out.println("        in.endObject();");
+            StringBuilder arguments = new StringBuilder();
+            for (VariableElement field : fields) {
+                arguments.append(arguments.length() == 0 ? "" : ", ").append(field.getSimpleName());
+            }
+            out.println("        return new " + className + "(" + arguments + ");");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+        return true;
+    }
+
+    /**
+     * Writes the adapter of the given enum
+     *
+     * @param type The annotated enum
+     */
+    private void writeEnumAdapter(TypeElement type) throws IOException {
+        String className = type.getQualifiedName().toString();
+        String packageName = packageOf(type);
+        String adapterName = adapterName(type);
+        List<VariableElement> constants = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getKind() == ElementKind.ENUM_CONSTANT) {
+                constants.add(field);
+            }
+        }
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(packageName + '.' + adapterName, type).openWriter())) {
+            header(out, packageName, type);
+            out.println("public final class " + adapterName + " extends com.google.gson.TypeAdapter<" + className + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void write(com.google.gson.stream.JsonWriter out, " + className + " value) throws java.io.IOException {");
+            out.println("        if (value == null) {");
+            out.println("            out.nullValue();");
+            out.println("            return;");
+            out.println("        }");
+            out.println("        switch (value) {");
+            for (VariableElement constant : constants) {
+                out.println("            case " + constant.getSimpleName() + ":");
+                out.println("                out.value(" + literal(names(constant).get(0)) + ");");
+                out.println("                break;");
+            }
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + className + " read(com.google.gson.stream.JsonReader in) throws java.io.IOException {");
+            out.println("        if (in.peek() == com.google.gson.stream.JsonToken.NULL) {");
+            out.println("            in.nextNull();");
+            out.println("            return null;");
+            out.println("        }");
+            out.println("        switch (in.nextString()) {");
+            for (VariableElement constant : constants) {
+                for (String name : names(constant)) {
+                    out.println("            case " + literal(name) + ":");
+                }
+                out.println("                return " + className + "." + constant.getSimpleName() + ";");
+            }
+            out.println("            default:");
+            out.println("                return null;");
+            out.println("        }");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+    }
+
+    /**
+     * Writes the factory which creates the adapters of the given types
+     *
+     * @param types The types with generated adapters
+     */
+    private void writeFactory(List<TypeElement> types) throws IOException {
+        int dot = FACTORY.lastIndexOf('.');
+        try (PrintWriter out = new PrintWriter(processingEnv.getFiler()
+                .createSourceFile(FACTORY, types.toArray(new Element[0])).openWriter())) {
+            out.println("package " + FACTORY.substring(0, dot) + ";");
+            out.println();
+            out.println("/**");
+            out.println(" * Creates the streaming adapters generated for the types annotated with");
+            out.println(" * {@link net.reflxction.launcherlib3.launcher.LauncherSection}. Generated by " + getClass().getSimpleName() + ", do not edit.");
+            out.println(" */");
+            out.println("public final class " + FACTORY.substring(dot + 1) + " implements com.google.gson.TypeAdapterFactory {");
+            out.println();
+            out.println("    @Override");
+            out.println("    @SuppressWarnings(\"unchecked\")");
+            out.println("    public <T> com.google.gson.TypeAdapter<T> create(com.google.gson.Gson gson, com.google.gson.reflect.TypeToken<T> type) {");
+            out.println("        Class<? super T> raw = type.getRawType();");
+            for (TypeElement type : types) {
+                out.println("        if (raw == " + type.getQualifiedName() + ".class) {");
+                String adapter = packageOf(type) + '.' + adapterName(type);
+                String arguments = type.getKind() == ElementKind.ENUM ? "" : "gson";
+                out.println("            return (com.google.gson.TypeAdapter<T>) new " + adapter + "(" + arguments + ");");
+                out.println("        }");
+            }
+            out.println("        return null;");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+    }
+
+    private void header(PrintWriter out, String packageName, TypeElement type) {
+        out.println("package " + packageName + ";");
+        out.println();
+        out.println("/**");
+        out.println(" * The streaming adapter of {@link " + type.getQualifiedName() + "}. Generated by "
+                + getClass().getSimpleName() + ", do not edit.");
+        out.println(" */");
+    }
+
+    /**
+     * Returns the expression which creates the delegate adapter of the given field
+     */
+    private String delegate(VariableElement field) {
+        AnnotationMirror annotation = jsonAdapter(field);
+        TypeMirror values = mapValues(field);
+        if (values != null) {
+            return "gson.getAdapter(new com.google.gson.reflect.TypeToken<" + boxed(values) + ">() {})";
+        }
+        if (annotation == null) {
+            return "gson.getAdapter(new com.google.gson.reflect.TypeToken<" + boxed(field.asType()) + ">() {})";
+        }
+        TypeMirror adapter = (TypeMirror) value(annotation, "value").getValue();
+        AnnotationValue nullSafe = value(annotation, "nullSafe");
+        String suffix = nullSafe == null || (Boolean) nullSafe.getValue() ? ".nullSafe()" : "";
+        if (isSubtype(adapter, TYPE_ADAPTER)) {
+            return "new " + adapter + "()" + suffix;
+        }
+        if (isSubtype(adapter, TYPE_ADAPTER_FACTORY)) {
+            return "new " + adapter + "().create(gson, new com.google.gson.reflect.TypeToken<"
+                    + boxed(field.asType()) + ">() {})" + suffix;
+        }
+        error(field, "Generated adapters only support @JsonAdapter with a TypeAdapter or a TypeAdapterFactory");
+        return "null";
+    }
+
+    /**
+     * Writes the statements which read the map of the given field, like Gson's map adapter reads maps with
+     * string keys
+     */
+    private void writeMapRead(PrintWriter out, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        String type = field.asType().toString();
+        out.println("                {");
+        out.println("                    if (in.peek() == com.google.gson.stream.JsonToken.NULL) {");
+        out.println("                        in.nextNull();");
+        out.println("                        " + name + " = null;");
+        out.println("                        break;");
+        out.println("                    }");
+        out.println("                    " + type + " map = new " + mapImplementation(field) + "();");
+        out.println("                    in.beginObject();");
+        out.println("                    while (in.hasNext()) {");
+        out.println("                        java.lang.String key = in.nextName();");
+        out.println("                        if (map.put(key, this." + name + ".read(in)) != null) {");
+        out.println("                            throw new com.google.gson.JsonSyntaxException(\"duplicate key: \" + key);");
+        out.println("                        }");
+        out.println("                    }");
+        out.println("                    in.endObject();");
+        out.println("                    " + name + " = map;");
+        out.println("                    break;");
+        out.println("                }");
+    }
+
+    /**
+     * Returns the expression which reads the value of the given field
+     */
+    private String read(VariableElement field, boolean delegated) {
+        String name = field.getSimpleName().toString();
+        if (delegated) {
+            return "this." + name + ".read(in)";
+        }
+        String support = "net.reflxction.launcherlib3.adapter.AdapterSupport.";
+        switch (field.asType().getKind()) {
+            case BOOLEAN:
+                return support + "nextBoolean(in, " + name + ")";
+            case INT:
+                return support + "nextInt(in, " + name + ")";
+            case LONG:
+                return support + "nextLong(in, " + name + ")";
+            case DOUBLE:
+                return support + "nextDouble(in, " + name + ")";
+            default:
+                boolean deduplicate = annotation(field, DEDUPLICATE) != null
+                        || annotation(field.getEnclosingElement(), DEDUPLICATE) != null;
+                return support + (deduplicate ? "nextDeduplicatedString(in)" : "nextString(in)");
+        }
+    }
+
+    /**
+     * Returns the value type of the given field, if it is a map with string keys which the generated adapter
+     * reads and writes itself
+     *
+     * @return The value type, or {@code null} if the field is not such a map
+     */
+    private TypeMirror mapValues(VariableElement field) {
+        TypeMirror type = field.asType();
+        if (jsonAdapter(field) != null || type.getKind() != TypeKind.DECLARED || mapImplementation(field) == null) {
+            return null;
+        }
+        List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+        if (arguments.size() != 2 || !arguments.get(0).toString().equals("java.lang.String")
+                || arguments.get(1).getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return arguments.get(1);
+    }
+
+    /**
+     * Returns the class of the maps the given field is read into: a {@link java.util.LinkedHashMap} for the
+     * {@link java.util.Map} interface, or the class of the field if it is a concrete map
+     *
+     * @return The class to instantiate, or {@code null} if the field is not a map which can be created
+     */
+    private String mapImplementation(VariableElement field) {
+        TypeElement map = processingEnv.getElementUtils().getTypeElement("java.util.Map");
+        TypeElement type = (TypeElement) ((DeclaredType) field.asType()).asElement();
+        if (type.getQualifiedName().contentEquals("java.util.Map")) {
+            return "java.util.LinkedHashMap<>";
+        }
+        if (!isSubtype(field.asType(), map.getQualifiedName().toString()) || type.getKind() != ElementKind.CLASS
+                || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return null;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return type.getQualifiedName() + (type.getTypeParameters().isEmpty() ? "" : "<>");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the given class has a non-private constructor whose parameters have the types of the given
+     * fields, in the same order
+     */
+    private boolean hasConstructor(TypeElement type, List<VariableElement> fields) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            List<? extends VariableElement> parameters = constructor.getParameters();
+            if (constructor.getModifiers().contains(Modifier.PRIVATE) || parameters.size() != fields.size()) {
+                continue;
+            }
+            boolean matches = true;
+            for (int i = 0; i < parameters.size() && matches; i++) {
+                matches = processingEnv.getTypeUtils().isSameType(parameters.get(i).asType(), fields.get(i).asType());
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the getters of the given class which are marked with {@code @FieldGetter}, assigned to the names of
+     * their fields. Marked getters must be non-private methods without parameters, and the getters of maps which
+     * the generated adapter writes itself must return maps with the same values.
+     *
+     * @return The marked getters, or {@code null} if a getter is invalid
+     */
+    private Map<String, ExecutableElement> markedGetters(TypeElement type, List<VariableElement> fields) {
+        Map<String, ExecutableElement> getters = new HashMap<>();
+        boolean valid = true;
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            AnnotationMirror annotation = annotation(method, FIELD_GETTER);
+            if (annotation == null) {
+                continue;
+            }
+            String name = (String) value(annotation, "value").getValue();
+            VariableElement field = null;
+            for (VariableElement candidate : fields) {
+                if (candidate.getSimpleName().contentEquals(name)) {
+                    field = candidate;
+                }
+            }
+            Set<Modifier> modifiers = method.getModifiers();
+            if (field == null) {
+                error(method, "@FieldGetter(\"" + name + "\") does not name a bound field of " + type.getSimpleName());
+                valid = false;
+            } else if (getters.containsKey(name)) {
+                error(method, "The field " + name + " already has a getter marked with @FieldGetter");
+                valid = false;
+            } else if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID
+                    || modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+                error(method, "Getters marked with @FieldGetter must be non-private, non-static methods without "
+                        + "parameters which return a value");
+                valid = false;
+            } else if (mapValues(field) != null && !isMapOf(method.getReturnType(), mapValues(field))) {
+                error(method, "The getter of the map " + name + " must return a java.util.Map<java.lang.String, "
+                        + mapValues(field) + ">");
+                valid = false;
+            } else {
+                getters.put(name, method);
+            }
+        }
+        return valid ? getters : null;
+    }
+
+    /**
+     * Returns whether the given type can be written as a map with string keys and the given values
+     */
+    private boolean isMapOf(TypeMirror type, TypeMirror values) {
+        TypeMirror string = processingEnv.getElementUtils().getTypeElement("java.lang.String").asType();
+        TypeElement map = processingEnv.getElementUtils().getTypeElement("java.util.Map");
+        return processingEnv.getTypeUtils().isAssignable(type,
+                processingEnv.getTypeUtils().getDeclaredType(map, string, values));
+    }
+
+    /**
+     * Returns the name of the adapter field which the value of the getter of the given field is written with,
+     * when the getter returns another type than the field
+     */
+    private static String writeAdapter(VariableElement field) {
+        return "write" + capitalize(field.getSimpleName().toString());
+    }
+
+    /**
+     * Returns the method which the generated adapter reads the value of the given field through, if it is not
+     * marked with {@code @FieldGetter}: a non-private method without parameters, which returns the type of the
+     * field and is named after it
+     *
+     * @return The method, or {@code null} if the class has no such method
+     */
+    private ExecutableElement getter(TypeElement type, VariableElement field) {
+        String name = field.getSimpleName().toString();
+        List<String> candidates = new ArrayList<>();
+        candidates.add("get" + capitalize(name));
+        if (field.asType().getKind() == TypeKind.BOOLEAN) {
+            candidates.add("is" + capitalize(name));
+        }
+        candidates.add(name);
+        for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = method.getModifiers();
+            if (candidates.contains(method.getSimpleName().toString()) && method.getParameters().isEmpty()
+                    && !modifiers.contains(Modifier.PRIVATE) && !modifiers.contains(Modifier.STATIC)
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), field.asType())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * Returns the value which a field of the given type has when the read object has no value for it
+     */
+    private static String defaultValue(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return "false";
+            case CHAR:
+                return "'\\0'";
+            case LONG:
+                return "0L";
+            case FLOAT:
+                return "0F";
+            case DOUBLE:
+                return "0D";
+            case BYTE:
+            case SHORT:
+            case INT:
+                return "0";
+            default:
+                return "null";
+        }
+    }
+
+    /**
+     * Returns whether the given type is read and written without a delegate adapter
+     */
+    private static boolean isDirect(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+            case INT:
+            case LONG:
+            case DOUBLE:
+                return true;
+            case DECLARED:
+                return type.toString().equals("java.lang.String");
+            default:
+                return false;
+        }
+    }
+
+    private String boxed(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+        }
+        return type.toString();
+    }
+
+    private boolean isSubtype(TypeMirror type, String superType) {
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(superType);
+        return element != null && processingEnv.getTypeUtils().isSubtype(
+                processingEnv.getTypeUtils().erasure(type), processingEnv.getTypeUtils().erasure(element.asType()));
+    }
+
+    /**
+     * Returns the JSON names of the given field or enum constant. The first name is the one it is written with,
+     * and the others are only accepted when reading.
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> names(VariableElement field) {
+        AnnotationMirror annotation = annotation(field, SERIALIZED_NAME);
+        if (annotation == null) {
+            return Collections.singletonList(field.getSimpleName().toString());
+        }
+        List<String> names = new ArrayList<>();
+        names.add((String) value(annotation, "value").getValue());
+        AnnotationValue alternate = value(annotation, "alternate");
+        if (alternate != null) {
+            for (AnnotationValue name : (List<? extends AnnotationValue>) alternate.getValue()) {
+                names.add((String) name.getValue());
+            }
+        }
+        return names;
+    }
+
+    private static AnnotationMirror jsonAdapter(VariableElement field) {
+        return annotation(field, JSON_ADAPTER);
+    }
+
+    private static AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (type.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private static AnnotationValue value(AnnotationMirror annotation, String name) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private String packageOf(TypeElement type) {
+        return processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    }
+
+    /**
+     * Returns the simple name of the adapter of the given type. Adapters of nested types include the names of
+     * their enclosing types.
+     */
+    private String adapterName(TypeElement type) {
+        String packageName = packageOf(type);
+        String name = type.getQualifiedName().toString();
+        if (!packageName.isEmpty()) {
+            name = name.substring(packageName.length() + 1);
+        }
+        return name.replace('.', '_') + "Adapter";
+    }
+
+    private static String literal(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import net.reflxction.launcherlib3.adapter.DateAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of parsing and formatting a single launcher date
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateAdapterBenchmark {
+
+    /**
+     * The date to parse, in the formats found in launcher files
+     */
+    @Param({"2019-01-02T10:11:12.345Z", "2019-01-02T10:11:12Z", "2019-01-02T10:11:12.345+02:00"})
+    public String text;
+
+    /**
+     * A date which was not parsed, and is hence formatted from its time
+     */
+    private Date created;
+
+    /**
+     * A date which was parsed, and is hence formatted as its text
+     */
+    private Date parsed;
+
+    @Setup
+    public void setup() {
+        created = new Date(1546423872345L);
+        parsed = DateAdapter.parse(text);
+    }
+
+    @Benchmark
+    public Date parse() {
+        return DateAdapter.parse(text);
+    }
+
+    @Benchmark
+    public String formatParsed() {
+        return DateAdapter.format(parsed);
+    }
+
+    @Benchmark
+    public String formatCreated() {
+        return DateAdapter.format(created);
+    }
+
+    /**
+     * The parse cost of java.time for the same text, as a reference
+     */
+    @Benchmark
+    public Date parseJavaTime() {
+        return Date.from(OffsetDateTime.parse(text).toInstant());
+    }
+
+}
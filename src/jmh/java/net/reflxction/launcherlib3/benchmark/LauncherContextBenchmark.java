@@ -0,0 +1,92 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.data.LauncherFileReader;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Gson round-trips of a {@link LauncherContext}, and the reading of the same content from bytes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LauncherContextBenchmark {
+
+    /**
+     * A context read from the file, with every section deserialized
+     */
+    private LauncherContext context;
+
+    @Setup
+    public void setup(LauncherFileState state) {
+        context = MinecraftLauncher.GSON.fromJson(state.text, LauncherContext.class);
+    }
+
+    @Benchmark
+    public LauncherContext fromJson(LauncherFileState state) {
+        return MinecraftLauncher.GSON.fromJson(state.text, LauncherContext.class);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return MinecraftLauncher.GSON.toJson(context);
+    }
+
+    @Benchmark
+    public String roundTrip(LauncherFileState state) {
+        return MinecraftLauncher.GSON.toJson(MinecraftLauncher.GSON.fromJson(state.text, LauncherContext.class));
+    }
+
+    /**
+     * Reads the content from its bytes, as the launcher files are read. The lazy sections are not deserialized.
+     */
+    @Benchmark
+    public LauncherContext readBytes(LauncherFileState state) {
+        return LauncherFileReader.read(ByteBuffer.wrap(state.content));
+    }
+
+    /**
+     * Reads the content from its bytes, and deserializes every lazy section
+     */
+    @Benchmark
+    public LauncherContext readBytesAllSections(LauncherFileState state) {
+        LauncherContext context = LauncherFileReader.read(ByteBuffer.wrap(state.content));
+        context.getAuthenticationDatabase();
+        context.getLauncherVersion();
+        context.getSettings();
+        context.getSelectedUser();
+        return context;
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic launcher file in a temporary directory, shared by the benchmarks of launcher files. Its size is
+ * set with the "profiles", "accounts" and "iconBytes" parameters (for example {@code -p profiles=5000}).
+ * <p>
+ * Every thread gets its own file, so the benchmarks which save it do not interfere with each other.
+ */
+@State(Scope.Thread)
+public class LauncherFileState {
+
+    /**
+     * The number of profiles in the file
+     */
+    @Param({"10", "1000"})
+    public int profiles;
+
+    /**
+     * The number of accounts in the authentication database
+     */
+    @Param({"2"})
+    public int accounts;
+
+    /**
+     * The size of the custom icons, in bytes before the base64 encoding
+     */
+    @Param({"0", "4096"})
+    public int iconBytes;
+
+    /**
+     * The directory of the file
+     */
+    public Path directory;
+
+    /**
+     * The launcher file
+     */
+    public Path file;
+
+    /**
+     * The content of the file
+     */
+    public byte[] content;
+
+    /**
+     * The content of the file, as text
+     */
+    public String text;
+
+    @Setup
+    public void setup() throws IOException {
+        content = new SyntheticLauncherFile(42).setProfiles(profiles).setAccounts(accounts).setIconBytes(iconBytes).toBytes();
+        text = new String(content, StandardCharsets.UTF_8);
+        directory = Files.createTempDirectory("launcherlib-benchmark");
+        file = Files.write(directory.resolve("launcher_profiles.json"), content);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        // Saves may leave a snapshot cache or a temporary file next to the launcher file
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Iterator<Path> iterator = files.iterator(); iterator.hasNext(); ) {
+                Files.delete(iterator.next());
+            }
+        }
+        Files.delete(directory);
+    }
+
+}
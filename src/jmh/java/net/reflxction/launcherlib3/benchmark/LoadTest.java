@@ -0,0 +1,267 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.metrics.Histogram;
+import net.reflxction.launcherlib3.metrics.HistogramMetrics;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+import net.reflxction.launcherlib3.profile.ProfileManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A load test of a {@link ProfileManager} shared by several threads. Every thread runs a loop of reads (profile
+ * lookups), modifications (replacing a profile with a changed copy) and saves, drawn with chosen weights, and the
+ * latency of every operation is recorded. The latency percentiles and the throughput of every operation are
+ * reported at the end.
+ * <p>
+ * The options are, in addition to the ones of {@link SyntheticLauncherFile#main(String[])} which describe the
+ * generated file:
+ * <ul>
+ * <li>--file=path: an existing launcher file to use instead of a generated one. It is modified by the test.</li>
+ * <li>--threads=4, --warmup=2 and --duration=10: the number of threads, and the durations in seconds</li>
+ * <li>--reads=90, --modifies=9 and --saves=1: the weights of the operations</li>
+ * <li>--durable: saves replace the file atomically instead of writing it in place</li>
+ * <li>--format=json: the report is written as JSON instead of a table</li>
+ * <li>--phases: the time spent in every phase of the loads and saves is recorded with {@link HistogramMetrics},
+ * and reported after the table</li>
+ * </ul>
+ */
+public final class LoadTest {
+
+    private static final String[] OPERATIONS = {"read", "modify", "save"};
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        int threads = options.getInt("threads", 4);
+        long warmup = TimeUnit.SECONDS.toNanos(options.getLong("warmup", 2));
+        long duration = TimeUnit.SECONDS.toNanos(options.getLong("duration", 10));
+        int[] weights = {options.getInt("reads", 90), options.getInt("modifies", 9), options.getInt("saves", 1)};
+        int totalWeight = weights[0] + weights[1] + weights[2];
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("At least one operation must have a weight");
+        }
+
+        Path directory = null;
+        Path file;
+        if (options.get("file", null) != null) {
+            file = Paths.get(options.get("file", null));
+        } else {
+            directory = Files.createTempDirectory("launcherlib-loadtest");
+            file = SyntheticLauncherFile.of(options).write(directory.resolve("launcher_profiles.json"));
+        }
+
+        HistogramMetrics metrics = null;
+        if (Boolean.parseBoolean(options.get("phases", "false"))) {
+            metrics = new HistogramMetrics();
+            MinecraftLauncher.setMetrics(metrics);
+        }
+        ProfileManager manager = new ProfileManager(file.toString(), true);
+        manager.setDurable(Boolean.parseBoolean(options.get("durable", "false")));
+        String[] names = manager.getProfiles().keySet().toArray(new String[0]);
+        if (names.length == 0) {
+            throw new IllegalArgumentException("The launcher file has no profiles: " + file);
+        }
+
+        long start = System.nanoTime();
+        long measureStart = start + warmup;
+        long end = measureStart + duration;
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(manager, names, weights, totalWeight, options.getLong("seed", 42) + i,
+                    measureStart, end);
+            worker.setName("LoadTest-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        if (metrics != null) {
+            // The phases of the warmup are not reported
+            TimeUnit.NANOSECONDS.sleep(measureStart - System.nanoTime());
+            metrics.reset();
+        }
+        Histogram[] totals = new Histogram[OPERATIONS.length];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new Histogram();
+        }
+        long failures = 0;
+        for (Worker worker : workers) {
+            worker.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i].add(worker.histograms[i]);
+            }
+            failures += worker.failures;
+        }
+        double seconds = duration / 1e9;
+
+        if (options.get("format", "table").equals("json")) {
+            printJson(file, threads, seconds, totals, failures);
+        } else {
+            printTable(file, threads, seconds, totals, failures);
+            if (metrics != null) {
+                System.out.println(metrics);
+            }
+        }
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(path -> path.toFile().delete());
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void printTable(Path file, int threads, double seconds, Histogram[] totals, long failures) {
+        System.out.printf(Locale.ROOT, "%s (%d bytes), %d threads, %.1f s%n", file, file.toFile().length(), threads, seconds);
+        System.out.printf(Locale.ROOT, "%-8s %12s %12s %10s %10s %10s %10s %10s %10s%n",
+                "op", "count", "ops/s", "mean us", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        long count = 0;
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            Histogram histogram = totals[i];
+            count += histogram.getCount();
+            System.out.printf(Locale.ROOT, "%-8s %12d %12.1f %10.1f", OPERATIONS[i], histogram.getCount(),
+                    histogram.getCount() / seconds, histogram.getMean() / 1e3);
+            for (double percentile : PERCENTILES) {
+                System.out.printf(Locale.ROOT, " %10.1f", histogram.getPercentile(percentile) / 1e3);
+            }
+            System.out.printf(Locale.ROOT, " %10.1f%n", histogram.getMax() / 1e3);
+        }
+        System.out.printf(Locale.ROOT, "total: %d operations, %.1f ops/s, %d failures%n", count, count / seconds, failures);
+    }
+
+    private static void printJson(Path file, int threads, double seconds, Histogram[] totals, long failures) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT, "{\"file\": \"%s\", \"bytes\": %d, \"threads\": %d, \"seconds\": %.3f, \"failures\": %d, \"operations\": {",
+                file.toString().replace("\\", "\\\\").replace("\"", "\\\""), file.toFile().length(), threads, seconds, failures));
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            Histogram histogram = totals[i];
+            json.append(i == 0 ? "" : ", ").append('"').append(OPERATIONS[i]).append("\": {");
+            json.append(String.format(Locale.ROOT, "\"count\": %d, \"opsPerSecond\": %.1f, \"meanNanos\": %.0f",
+                    histogram.getCount(), histogram.getCount() / seconds, histogram.getMean()));
+            for (double percentile : PERCENTILES) {
+                json.append(String.format(Locale.ROOT, ", \"p%sNanos\": %d",
+                        Double.toString(percentile).replace(".0", "").replace('.', '_'), histogram.getPercentile(percentile)));
+            }
+            json.append(", \"maxNanos\": ").append(histogram.getMax()).append('}');
+        }
+        System.out.println(json.append("}}"));
+    }
+
+    /**
+     * A thread of the test, which records the latencies of its operations once the warmup is over
+     */
+    private static final class Worker extends Thread {
+
+        private final ProfileManager manager;
+
+        private final String[] names;
+
+        private final int[] weights;
+
+        private final int totalWeight;
+
+        private final SplittableRandom random;
+
+        private final long measureStart;
+
+        private final long end;
+
+        private final Histogram[] histograms = new Histogram[OPERATIONS.length];
+
+        private long failures;
+
+        private Worker(ProfileManager manager, String[] names, int[] weights, int totalWeight, long seed,
+                       long measureStart, long end) {
+            this.manager = manager;
+            this.names = names;
+            this.weights = weights;
+            this.totalWeight = totalWeight;
+            this.random = new SplittableRandom(seed);
+            this.measureStart = measureStart;
+            this.end = end;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+
+        @Override
+        public void run() {
+            boolean measuring = false;
+            long now = System.nanoTime();
+            while (now < end) {
+                if (!measuring && now >= measureStart) {
+                    // The operations of the warmup are not reported
+                    for (Histogram histogram : histograms) {
+                        histogram.reset();
+                    }
+                    failures = 0;
+                    measuring = true;
+                }
+                int operation = operation();
+                String name = names[random.nextInt(names.length)];
+                try {
+                    run(operation, name);
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+                long done = System.nanoTime();
+                histograms[operation].record(done - now);
+                now = done;
+            }
+        }
+
+        private int operation() {
+            int weight = random.nextInt(totalWeight);
+            for (int i = 0; i < weights.length; i++) {
+                weight -= weights[i];
+                if (weight < 0) {
+                    return i;
+                }
+            }
+            throw new AssertionError();
+        }
+
+        private void run(int operation, String name) {
+            switch (operation) {
+                case 0:
+                    manager.getProfile(name);
+                    break;
+                case 1: {
+                    LauncherProfile profile = manager.getProfile(name);
+                    if (profile != null) {
+                        manager.addProfile(profile.asBuilder().setJavaArguments("-Xmx" + (1 + random.nextInt(8)) + "G").build());
+                    }
+                    break;
+                }
+                default:
+                    manager.save();
+            }
+        }
+    }
+
+}
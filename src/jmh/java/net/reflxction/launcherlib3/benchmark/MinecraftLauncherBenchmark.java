@@ -0,0 +1,59 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of opening a launcher file with {@link MinecraftLauncher#MinecraftLauncher(String)}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinecraftLauncherBenchmark {
+
+    /**
+     * The constructor alone, which finds the shared store of the file and does not parse it
+     */
+    @Benchmark
+    public MinecraftLauncher construct(LauncherFileState state) {
+        return new MinecraftLauncher(state.file.toString());
+    }
+
+    /**
+     * The constructor followed by the first read of the data, which parses the file
+     */
+    @Benchmark
+    public LauncherContext constructAndLoad(LauncherFileState state) {
+        // The snapshot is shared by every launcher of the file, and is discarded so the file is parsed again
+        LauncherDataStore.of(state.file.toFile()).invalidate();
+        return new MinecraftLauncher(state.file.toString()).getLauncherContext();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+import net.reflxction.launcherlib3.profile.ProfileManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of a {@link ProfileManager} on a synthetic launcher file
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfileManagerBenchmark {
+
+    /**
+     * The manager of the file, which is concurrent so that it keeps its profiles after a save
+     */
+    private ProfileManager manager;
+
+    /**
+     * The names of the profiles of the file
+     */
+    private String[] names;
+
+    /**
+     * The index of the next profile to look up or change
+     */
+    private int next;
+
+    @Setup
+    public void setup(LauncherFileState state) {
+        manager = new ProfileManager(state.file.toString(), true);
+        names = new String[state.profiles];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = SyntheticLauncherFile.profileName(i);
+        }
+    }
+
+    /**
+     * Creates a manager, which parses the file
+     */
+    @Benchmark
+    public ProfileManager load(LauncherFileState state) {
+        LauncherDataStore.of(state.file.toFile()).invalidate();
+        return new ProfileManager(state.file.toString());
+    }
+
+    /**
+     * Reads the profiles from the file again
+     */
+    @Benchmark
+    public Map<String, LauncherProfile> updateCache() {
+        return manager.updateCache();
+    }
+
+    /**
+     * Changes a single profile, and saves the file
+     */
+    @Benchmark
+    public void save() {
+        LauncherProfile profile = manager.getProfile(nextName());
+        manager.addProfile(profile.asBuilder().setJavaArguments("-Xmx" + (1 + next % 8) + "G").build()).save();
+    }
+
+    /**
+     * Looks up an existing profile
+     */
+    @Benchmark
+    public LauncherProfile getProfile() {
+        return manager.getProfile(nextName());
+    }
+
+    /**
+     * Looks up a profile which does not exist
+     */
+    @Benchmark
+    public LauncherProfile getMissingProfile() {
+        return manager.getProfile("Missing profile");
+    }
+
+    private String nextName() {
+        if (++next == names.length) {
+            next = 0;
+        }
+        return names[next];
+    }
+
+}
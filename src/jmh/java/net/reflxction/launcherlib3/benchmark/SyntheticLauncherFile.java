@@ -0,0 +1,444 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.benchmark;
+
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.adapter.DateAdapter;
+import net.reflxction.launcherlib3.profile.ProfileType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates launcher files of a chosen size, in the layout the launcher writes them. The same seed and settings
+ * always generate the same file.
+ * <p>
+ * Profiles are named "Profile 0", "Profile 1" and so on, and are assigned to their names. Their types are drawn
+ * from a weighted mix, and their dates are spread over a chosen period. Accounts have a chosen number of
+ * session profiles.
+ * <p>
+ * Files can also be generated from the command line, with the options of {@link #main(String[])}.
+ */
+public final class SyntheticLauncherFile {
+
+    /**
+     * The versions the generated profiles use
+     */
+    private static final String[] VERSIONS = {"1.8.9", "1.12.2", "1.14.4", "1.15.2", "latest-release", "latest-snapshot"};
+
+    /**
+     * The built-in icons of the launcher, used by the profiles which have no custom icon
+     */
+    private static final String[] ICONS = {"Grass", "Dirt", "Furnace", "Crafting_Table", "Bookshelf", "TNT"};
+
+    /**
+     * The seed of the generated content
+     */
+    private final long seed;
+
+    /**
+     * The number of profiles
+     */
+    private int profiles = 100;
+
+    /**
+     * The number of accounts in the authentication database
+     */
+    private int accounts = 1;
+
+    /**
+     * The number of session profiles of every account
+     */
+    private int sessions = 1;
+
+    /**
+     * The weights of the profile types
+     */
+    private final Map<ProfileType, Integer> typeWeights = new EnumMap<>(ProfileType.class);
+
+    /**
+     * The minimum size of the custom icons, in bytes before the base64 encoding
+     */
+    private int minIconBytes;
+
+    /**
+     * The maximum size of the custom icons, in bytes before the base64 encoding, or 0 for built-in icons only
+     */
+    private int maxIconBytes;
+
+    /**
+     * The share of the profiles which have a custom icon, when the icon size is not 0
+     */
+    private double customIcons = 1 / 3.0;
+
+    /**
+     * The earliest creation date of the profiles
+     */
+    private long from = 1420070400000L;
+
+    /**
+     * The latest creation and last use date of the profiles
+     */
+    private long to = 1577836800000L;
+
+    /**
+     * Initiates a new generator
+     *
+     * @param seed The seed of the generated content
+     */
+    public SyntheticLauncherFile(long seed) {
+        this.seed = seed;
+        typeWeights.put(ProfileType.CUSTOM, 1);
+    }
+
+    /**
+     * Sets the number of profiles
+     *
+     * @param profiles The number of profiles
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setProfiles(int profiles) {
+        this.profiles = profiles;
+        return this;
+    }
+
+    /**
+     * Sets the number of accounts in the authentication database
+     *
+     * @param accounts The number of accounts
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setAccounts(int accounts) {
+        this.accounts = accounts;
+        return this;
+    }
+
+    /**
+     * Sets the number of session profiles of every account
+     *
+     * @param sessions The number of sessions per account
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setSessions(int sessions) {
+        this.sessions = sessions;
+        return this;
+    }
+
+    /**
+     * Sets the weight of the given profile type in the mix of profile types. Only custom profiles are generated
+     * by default.
+     *
+     * @param type   The profile type
+     * @param weight The weight of the type, or 0 to not generate it
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setTypeWeight(ProfileType type, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight must not be negative: " + weight);
+        }
+        typeWeights.put(type, weight);
+        return this;
+    }
+
+    /**
+     * Sets the size of the custom icons. By default, a third of the profiles have a custom icon, and the others
+     * have a built-in one.
+     *
+     * @param iconBytes The size of the icon images, in bytes, or 0 for built-in icons only
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setIconBytes(int iconBytes) {
+        return setIconBytes(iconBytes, iconBytes);
+    }
+
+    /**
+     * Sets the range of sizes of the custom icons
+     *
+     * @param min The minimum size of the icon images, in bytes
+     * @param max The maximum size of the icon images, in bytes, or 0 for built-in icons only
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setIconBytes(int min, int max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException("Invalid icon sizes: " + min + " to " + max);
+        }
+        this.minIconBytes = min;
+        this.maxIconBytes = max;
+        return this;
+    }
+
+    /**
+     * Sets the share of the profiles which have a custom icon, when the icon size is not 0
+     *
+     * @param customIcons The share of custom icons, from 0 to 1
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setCustomIcons(double customIcons) {
+        this.customIcons = customIcons;
+        return this;
+    }
+
+    /**
+     * Sets the period over which the profile dates are spread. Creation dates are uniform over the period, and
+     * every profile was last used between its creation and the end of the period.
+     *
+     * @param from The earliest creation date
+     * @param to   The latest date
+     * @return This generator instance
+     */
+    public SyntheticLauncherFile setDateSpread(Date from, Date to) {
+        if (to.before(from)) {
+            throw new IllegalArgumentException("The period ends before it starts: " + from + " to " + to);
+        }
+        this.from = from.getTime();
+        this.to = to.getTime();
+        return this;
+    }
+
+    /**
+     * Writes a synthetic launcher file. The arguments are the path of the file, followed by any of the options:
+     * <ul>
+     * <li>--seed=42</li>
+     * <li>--profiles=100, --accounts=1 and --sessions=1: the number of profiles, accounts and sessions per account</li>
+     * <li>--types=custom:8,latest-release:1,latest-snapshot:1: the mix of profile types</li>
+     * <li>--icons=1024-8192 and --custom-icons=0.33: the range of icon sizes, and the share of custom icons</li>
+     * <li>--from=2015-01-01T00:00:00Z and --to=2020-01-01T00:00:00Z: the spread of the profile dates</li>
+     * </ul>
+     *
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        if (options.getArguments().size() != 1) {
+            System.err.println("Usage: SyntheticLauncherFile <file> [--seed=42] [--profiles=100] [--accounts=1] [--sessions=1]"
+                    + " [--types=custom:1] [--icons=0] [--custom-icons=0.33] [--from=<date>] [--to=<date>]");
+            System.exit(1);
+        }
+        Path file = of(options).write(Paths.get(options.getArguments().get(0)));
+        System.out.println("Wrote " + file);
+    }
+
+    /**
+     * Creates a generator from the given command line options
+     *
+     * @param options The options, as described by {@link #main(String[])}
+     * @return The generator
+     */
+    static SyntheticLauncherFile of(Options options) {
+        SyntheticLauncherFile generator = new SyntheticLauncherFile(options.getLong("seed", 42))
+                .setProfiles(options.getInt("profiles", 100))
+                .setAccounts(options.getInt("accounts", 1))
+                .setSessions(options.getInt("sessions", 1))
+                .setCustomIcons(options.getDouble("custom-icons", 1 / 3.0));
+        String types = options.get("types", null);
+        if (types != null) {
+            generator.typeWeights.clear();
+            for (String type : types.split(",")) {
+                String[] weight = type.split(":");
+                ProfileType value = MinecraftLauncher.GSON.getAdapter(ProfileType.class).fromJsonTree(new JsonPrimitive(weight[0]));
+                if (value == null) {
+                    throw new IllegalArgumentException("Unknown profile type: " + weight[0]);
+                }
+                generator.setTypeWeight(value, weight.length == 1 ? 1 : Integer.parseInt(weight[1]));
+            }
+        }
+        String icons = options.get("icons", "0");
+        int separator = icons.indexOf('-');
+        if (separator == -1) {
+            generator.setIconBytes(Integer.parseInt(icons));
+        } else {
+            generator.setIconBytes(Integer.parseInt(icons.substring(0, separator)), Integer.parseInt(icons.substring(separator + 1)));
+        }
+        String from = options.get("from", null);
+        String to = options.get("to", null);
+        if (from != null || to != null) {
+            generator.setDateSpread(from == null ? new Date(generator.from) : DateAdapter.parse(from),
+                    to == null ? new Date(generator.to) : DateAdapter.parse(to));
+        }
+        return generator;
+    }
+
+    /**
+     * Returns the name of the profile with the given index
+     *
+     * @param index The index of the profile
+     * @return The name of the profile
+     */
+    public static String profileName(int index) {
+        return "Profile " + index;
+    }
+
+    /**
+     * Generates the file content
+     *
+     * @return The UTF-8 content of the file
+     */
+    public byte[] toBytes() {
+        long estimate = profiles * (300L + (long) (maxIconBytes * 4 / 3 * customIcons)) + accounts * (300L + sessions * 80L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(estimate, Integer.MAX_VALUE - 8));
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Generates the file content into the given file
+     *
+     * @param file The file to write
+     * @return The given file
+     * @throws UncheckedIOException If the file could not be written
+     */
+    public Path write(Path file) {
+        try {
+            Files.write(file, toBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the launcher file: " + file, e);
+        }
+        return file;
+    }
+
+    private void write(Writer writer) throws IOException {
+        Random random = new Random(seed);
+        JsonWriter out = new JsonWriter(writer);
+        out.setIndent("  ");
+        TypeAdapter<ProfileType> types = MinecraftLauncher.GSON.getAdapter(ProfileType.class);
+        int totalWeight = typeWeights.values().stream().mapToInt(Integer::intValue).sum();
+        out.beginObject();
+        out.name("profiles").beginObject();
+        for (int i = 0; i < profiles; i++) {
+            out.name(profileName(i));
+            writeProfile(out, random, i, types, totalWeight);
+        }
+        out.endObject();
+        out.name("settings").beginObject();
+        out.name("enableSnapshots").value(random.nextBoolean());
+        out.name("locale").value("en-us");
+        out.name("profileSorting").value("byLastPlayed");
+        out.name("showMenu").value(true);
+        out.name("crashAssistance").value(true);
+        out.endObject();
+        out.name("analyticsToken").value(hex(random, 32));
+        out.name("analyticsFailcount").value(0);
+        out.name("selectedProfile").value(profiles == 0 ? null : profileName(0));
+        out.name("authenticationDatabase").beginObject();
+        String firstAccount = null;
+        String firstProfile = null;
+        for (int i = 0; i < accounts; i++) {
+            String account = hex(random, 32);
+            String profile = hex(random, 32);
+            if (i == 0) {
+                firstAccount = account;
+                firstProfile = profile;
+            }
+            out.name(account).beginObject();
+            out.name("accessToken").value(token(random));
+            out.name("username").value("player" + i + "@example.com");
+            out.name("profiles").beginObject();
+            for (int j = 0; j < sessions; j++) {
+                String name = j == 0 ? "Player" + i : "Player" + i + "_" + j;
+                out.name(j == 0 ? profile : hex(random, 32)).beginObject().name("displayName").value(name).endObject();
+            }
+            out.endObject();
+            out.endObject();
+        }
+        out.endObject();
+        if (firstAccount != null) {
+            out.name("selectedUser").beginObject();
+            out.name("account").value(firstAccount);
+            out.name("profile").value(firstProfile);
+            out.endObject();
+        }
+        out.name("clientToken").value(hex(random, 32));
+        out.name("launcherVersion").beginObject();
+        out.name("name").value("2.1.5965");
+        out.name("format").value(21);
+        out.name("profilesFormat").value(2);
+        out.endObject();
+        out.endObject();
+        out.flush();
+    }
+
+    private void writeProfile(JsonWriter out, Random random, int index, TypeAdapter<ProfileType> types,
+                              int totalWeight) throws IOException {
+        long created = from + (long) (random.nextDouble() * (to - from));
+        long lastUsed = created + (long) (random.nextDouble() * (to - created));
+        out.beginObject();
+        out.name("name").value(profileName(index));
+        out.name("type");
+        types.write(out, type(random, totalWeight));
+        out.name("created").value(DateAdapter.format(new Date(created)));
+        out.name("lastUsed").value(DateAdapter.format(new Date(lastUsed)));
+        boolean customIcon = maxIconBytes > 0 && random.nextDouble() < customIcons;
+        out.name("icon").value(customIcon ? icon(random) : ICONS[random.nextInt(ICONS.length)]);
+        out.name("lastVersionId").value(VERSIONS[random.nextInt(VERSIONS.length)]);
+        out.name("gameDir").value("/home/player/.minecraft/instances/instance" + random.nextInt(profiles + 1));
+        out.name("javaArgs").value("-Xmx" + (1 + random.nextInt(8)) + "G -XX:+UseG1GC");
+        out.endObject();
+    }
+
+    private ProfileType type(Random random, int totalWeight) {
+        if (totalWeight == 0) {
+            return ProfileType.CUSTOM;
+        }
+        int weight = random.nextInt(totalWeight);
+        for (Map.Entry<ProfileType, Integer> entry : typeWeights.entrySet()) {
+            weight -= entry.getValue();
+            if (weight < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new AssertionError();
+    }
+
+    private String icon(Random random) {
+        byte[] image = new byte[minIconBytes + random.nextInt(maxIconBytes - minIconBytes + 1)];
+        random.nextBytes(image);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(image);
+    }
+
+    private static String token(Random random) {
+        byte[] token = new byte[192];
+        random.nextBytes(token);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    private static String hex(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(Character.forDigit(random.nextInt(16), 16));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,312 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3;
+
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.data.LauncherFileReader;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds every launcher file ("launcher_profiles.json") under a directory, and parses them in parallel.
+ * <p>
+ * Files are parsed as soon as they are found, while the rest of the tree is still walked, and every parsed file
+ * (or the error which prevented parsing it) is passed to a {@link Listener} as soon as it is done. At most a
+ * given number of files are parsed at once: the walk waits for a file to be done before it starts another one.
+ * <p>
+ * The parsed contents are not shared with the {@link MinecraftLauncher launchers} of the files, so they can be
+ * collected as soon as the listener is done with them.
+ */
+public final class LauncherBulkLoader {
+
+    /**
+     * The executor which parses the files
+     */
+    private final Executor executor;
+
+    /**
+     * The maximum number of files parsed at once
+     */
+    private final int parallelism;
+
+    /**
+     * Initiates a new loader which parses as many files at once as there are processors, on the
+     * {@link LauncherDataStore#getExecutor() I/O executor}
+     */
+    public LauncherBulkLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initiates a new loader which parses files on the {@link LauncherDataStore#getExecutor() I/O executor}
+     *
+     * @param parallelism The maximum number of files parsed at once
+     */
+    public LauncherBulkLoader(int parallelism) {
+        this(LauncherDataStore.getExecutor(), parallelism);
+    }
+
+    /**
+     * Initiates a new loader
+     *
+     * @param executor    The executor which parses the files, such as a {@link java.util.concurrent.ForkJoinPool}
+     *                    or a {@link LauncherDataStore#newVirtualThreadExecutor() virtual thread executor}
+     * @param parallelism The maximum number of files parsed at once
+     */
+    public LauncherBulkLoader(Executor executor, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+        }
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Parses every launcher file under the given directory, and returns once they are all done.
+     * <p>
+     * The listener is called from the threads of the executor, possibly from several threads at once. If the
+     * calling thread is interrupted, no more files are started, and the files which were started are still
+     * waited for.
+     *
+     * @param root     The directory to walk
+     * @param listener The listener which receives the parsed files and the errors
+     * @return The statistics of the load
+     * @throws UncheckedIOException If the directory could not be walked
+     */
+    public Statistics load(Path root, Listener listener) {
+        Load load = new Load(listener);
+        try {
+            Files.walkFileTree(root, load);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to walk the directory: " + root, e);
+        } finally {
+            load.permits.acquireUninterruptibly(parallelism);
+            load.permits.release(parallelism);
+        }
+        return load.statistics(System.nanoTime());
+    }
+
+    /**
+     * Returns the maximum number of files parsed at once
+     *
+     * @return The parallelism of this loader
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * The state of a single {@link #load(Path, Listener)}, which walks the tree and starts the files it finds
+     */
+    private final class Load extends SimpleFileVisitor<Path> {
+
+        private final Listener listener;
+
+        /**
+         * A permit for every file which may still be started
+         */
+        private final Semaphore permits = new Semaphore(parallelism);
+
+        private final long start = System.nanoTime();
+
+        private final LongAdder files = new LongAdder();
+
+        private final LongAdder failures = new LongAdder();
+
+        private final LongAdder bytes = new LongAdder();
+
+        private Load(Listener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+            if (!attributes.isRegularFile() || !file.getFileName().toString().equals(MinecraftLauncher.FILE_NAME)) {
+                return FileVisitResult.CONTINUE;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return FileVisitResult.TERMINATE;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        parse(file, attributes.size());
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                fail(file, e);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+            fail(file, e);
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void parse(Path file, long size) {
+            LauncherContext context;
+            try {
+                context = LauncherFileReader.read(file.toFile());
+            } catch (RuntimeException e) {
+                fail(file, e);
+                return;
+            }
+            files.increment();
+            bytes.add(size);
+            listener.onLoaded(file, context);
+        }
+
+        private void fail(Path file, Exception error) {
+            failures.increment();
+            listener.onFailed(file, error);
+        }
+
+        private Statistics statistics(long end) {
+            return new Statistics(files.sum(), failures.sum(), bytes.sum(), end - start);
+        }
+    }
+
+    /**
+     * Receives the files of a load as they are done. Exceptions thrown by the listener are not caught, and are
+     * left to the executor.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a file was parsed
+         *
+         * @param file    The launcher file
+         * @param context The content of the file
+         */
+        void onLoaded(Path file, LauncherContext context);
+
+        /**
+         * Called when a file (or a directory of the tree) could not be read or parsed
+         *
+         * @param file  The launcher file, or the directory which could not be walked
+         * @param error The error
+         */
+        default void onFailed(Path file, Exception error) {
+        }
+    }
+
+    /**
+     * Represents the figures of a finished load
+     */
+    public static final class Statistics {
+
+        private final long files;
+
+        private final long failures;
+
+        private final long bytes;
+
+        private final long elapsedNanos;
+
+        private Statistics(long files, long failures, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.failures = failures;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of files which were parsed
+         *
+         * @return The number of parsed files
+         */
+        public long getFiles() {
+            return files;
+        }
+
+        /**
+         * Returns the number of files and directories which could not be read or parsed
+         *
+         * @return The number of failures
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the total size of the parsed files
+         *
+         * @return The number of parsed bytes
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the time the load took, from the start of the walk until every file was done
+         *
+         * @param unit The unit of the returned time
+         * @return The duration of the load
+         */
+        public long getElapsed(TimeUnit unit) {
+            return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns the number of files parsed per second
+         *
+         * @return The file throughput
+         */
+        public double getFilesPerSecond() {
+            return perSecond(files);
+        }
+
+        /**
+         * Returns the number of bytes parsed per second
+         *
+         * @return The byte throughput
+         */
+        public double getBytesPerSecond() {
+            return perSecond(bytes);
+        }
+
+        private double perSecond(long count) {
+            return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d files (%d failed), %d bytes in %d ms: %.1f files/s, %.1f MB/s", files, failures,
+                    bytes, getElapsed(TimeUnit.MILLISECONDS), getFilesPerSecond(), getBytesPerSecond() / (1 << 20));
+        }
+    }
+
+}
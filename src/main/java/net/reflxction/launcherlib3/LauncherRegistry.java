@@ -0,0 +1,384 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3;
+
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.profile.ProfileManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the launchers and profile managers of many launcher files, assigned to the paths of the
+ * files.
+ * <p>
+ * A file is parsed the first time it is requested, and its launcher and profile manager are then shared by every
+ * caller until they are evicted. When the same file is requested by several threads at once, it is only parsed
+ * once, and the other threads wait for that parse.
+ * <p>
+ * The registry holds at most a given number of files, and files of at most a given total weight, which is the
+ * size of the files in bytes. When either limit is exceeded, the least recently requested files are evicted, and
+ * their {@link LauncherDataStore#release(String) store is released} along with its parsed content. Instances which
+ * are still used after they were evicted keep working, but their file is parsed again the next time it is read.
+ * <p>
+ * The profile managers of the registry are {@link ProfileManager#ProfileManager(String, boolean) concurrent},
+ * as they may be shared by multiple threads.
+ */
+public final class LauncherRegistry {
+
+    /**
+     * The loaded files, from the least to the most recently requested
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The files which are being parsed, which other requests for the same file wait for
+     */
+    private final Map<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * The maximum number of loaded files
+     */
+    private final int maximumSize;
+
+    /**
+     * The maximum total weight of the loaded files
+     */
+    private final long maximumWeight;
+
+    /**
+     * The total weight of the loaded files. Guarded by the entries.
+     */
+    private long weight;
+
+    /**
+     * The number of requests which were served by a loaded file
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of requests which were not served by a loaded file
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The number of files which were parsed
+     */
+    private final LongAdder loads = new LongAdder();
+
+    /**
+     * The number of files which were evicted because a limit was exceeded
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Initiates a new registry which holds at most the given number of files, regardless of their size
+     *
+     * @param maximumSize The maximum number of loaded files
+     */
+    public LauncherRegistry(int maximumSize) {
+        this(maximumSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * Initiates a new registry
+     *
+     * @param maximumSize   The maximum number of loaded files
+     * @param maximumWeight The maximum total size of the loaded files, in bytes
+     */
+    public LauncherRegistry(int maximumSize, long maximumWeight) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maximumSize);
+        }
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("The maximum weight must be positive: " + maximumWeight);
+        }
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the launcher of the given file, parsing the file if it is not loaded
+     *
+     * @param path Path to the launcher_profiles.json file
+     * @return The shared launcher of the file
+     * @throws java.io.UncheckedIOException          If the file could not be read
+     * @throws com.google.gson.JsonSyntaxException If the file is malformed
+     */
+    public MinecraftLauncher getLauncher(String path) {
+        return get(path).launcher;
+    }
+
+    /**
+     * Returns the profile manager of the given file, parsing the file if it is not loaded
+     *
+     * @param path Path to the launcher_profiles.json file
+     * @return The shared, concurrent profile manager of the file
+     * @throws java.io.UncheckedIOException          If the file could not be read
+     * @throws com.google.gson.JsonSyntaxException If the file is malformed
+     */
+    public ProfileManager getProfileManager(String path) {
+        return get(path).profileManager;
+    }
+
+    /**
+     * Evicts the given file, if it is loaded. This is not counted as an eviction.
+     *
+     * @param path Path to the launcher_profiles.json file
+     */
+    public void invalidate(String path) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.remove(key(path));
+            if (entry != null) {
+                weight -= entry.weight;
+            }
+        }
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    /**
+     * Evicts every loaded file. This is not counted as evictions.
+     */
+    public void invalidateAll() {
+        List<Entry> evicted;
+        synchronized (entries) {
+            evicted = new ArrayList<>(entries.values());
+            entries.clear();
+            weight = 0;
+        }
+        evicted.forEach(LauncherRegistry::release);
+    }
+
+    /**
+     * Returns the number of loaded files
+     *
+     * @return The number of loaded files
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total weight of the loaded files
+     *
+     * @return The total size of the loaded files, in bytes
+     */
+    public long getWeight() {
+        synchronized (entries) {
+            return weight;
+        }
+    }
+
+    /**
+     * Returns the maximum number of loaded files
+     *
+     * @return The maximum number of loaded files
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Returns the maximum total weight of the loaded files
+     *
+     * @return The maximum total size of the loaded files, in bytes
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Returns the number of requests which were served by a loaded file
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests which were not served by a loaded file. This includes the requests which
+     * waited for a parse started by another request.
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of files which were parsed by this registry
+     *
+     * @return The number of loads
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the number of files which were evicted because the size or the weight limit was exceeded
+     *
+     * @return The number of evictions
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private Entry get(String path) {
+        String key = key(path);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            synchronized (entries) {
+                // The file may have been loaded between the lookup and the registration of the future
+                entry = entries.get(key);
+            }
+            if (entry == null) {
+                entry = load(key);
+            }
+            future.complete(entry);
+            return entry;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * Parses the given file, and adds it to the loaded files
+     *
+     * @param key The canonical path to the file
+     * @return The loaded file
+     */
+    private Entry load(String key) {
+        LauncherDataStore store = LauncherDataStore.of(key);
+        Entry entry;
+        try {
+            ProfileManager profileManager = new ProfileManager(key, true);
+            entry = new Entry(store, new MinecraftLauncher(key), profileManager,
+                    Math.max(0, store.getSnapshot().getStamp().getSize()));
+        } catch (RuntimeException | Error e) {
+            // The store of a file which could not be loaded is not kept
+            store.release();
+            throw e;
+        }
+        loads.increment();
+        List<Entry> evicted;
+        synchronized (entries) {
+            entries.put(key, entry);
+            weight += entry.weight;
+            evicted = evict();
+        }
+        // The stores of the evicted files are released outside of the lock
+        evicted.forEach(LauncherRegistry::release);
+        return entry;
+    }
+
+    /**
+     * Removes the least recently requested files until both limits are met. Guarded by the entries.
+     *
+     * @return The evicted files
+     */
+    private List<Entry> evict() {
+        List<Entry> evicted = new ArrayList<>();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((entries.size() > maximumSize || weight > maximumWeight) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            weight -= entry.weight;
+            evicted.add(entry);
+            evictions.increment();
+        }
+        return evicted;
+    }
+
+    private static Entry await(CompletableFuture<Entry> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Releases the store of the given evicted file
+     */
+    private static void release(Entry entry) {
+        entry.store.release();
+    }
+
+    /**
+     * Returns the key of the given file, which is the path of its shared store. The store is not created.
+     */
+    private static String key(String path) {
+        return LauncherDataStore.canonicalPath(path);
+    }
+
+    /**
+     * Represents a loaded file
+     */
+    private static final class Entry {
+
+        private final LauncherDataStore store;
+
+        private final MinecraftLauncher launcher;
+
+        private final ProfileManager profileManager;
+
+        private final long weight;
+
+        private Entry(LauncherDataStore store, MinecraftLauncher launcher, ProfileManager profileManager, long weight) {
+            this.store = store;
+            this.launcher = launcher;
+            this.profileManager = profileManager;
+            this.weight = weight;
+        }
+    }
+
+}
@@ -19,12 +19,16 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import net.reflxction.launcherlib3.adapter.DateAdapter;
+import net.reflxction.launcherlib3.adapter.LauncherSectionAdapters;
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.data.LauncherFileReader;
+import net.reflxction.launcherlib3.data.LauncherFileWatcher;
 import net.reflxction.launcherlib3.launcher.LauncherContext;
-import net.reflxction.simplejson.configuration.DirectConfiguration;
-import net.reflxction.simplejson.json.JsonFile;
+import net.reflxction.launcherlib3.metrics.LauncherMetrics;
 
 import java.io.File;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a Java-oriented class which fully wraps the Minecraft launcher
@@ -47,34 +51,35 @@ public class MinecraftLauncher {
     /**
      * Minecraft's working directory (.minecraft). This should be used instead of invoking {@link #getExpectedMinecraftDirectory()} for
      * caching.
+     * <p>
+     * The directory is only resolved, and is not created: it may not exist until the launcher file is saved.
      */
-    public static final File WORKING_DIRECTORY = getExpectedMinecraftDirectory();
+    public static final File WORKING_DIRECTORY = resolveMinecraftDirectory();
 
     /**
      * The launcher_profiles.json file.
      */
-    public static final File DATA_FILE = new File(getExpectedMinecraftDirectory() + File.separator + FILE_NAME);
+    public static final File DATA_FILE = new File(WORKING_DIRECTORY, FILE_NAME);
 
     /**
      * The GSON profile used to serialize and deserialize all the required data for the library to work.
+     * <p>
+     * The sections of the file are read and written by the streaming adapters generated at compile time for the
+     * {@link net.reflxction.launcherlib3.launcher.LauncherSection} types, rather than by reflection.
      */
     public static final Gson GSON = new GsonBuilder().setPrettyPrinting()
-            .registerTypeAdapter(Date.class, new DateAdapter()).create();
-
-    /**
-     * A default instance of the launcher. Useful if no new initiation is required.
-     */
-    private static final MinecraftLauncher INSTANCE = new MinecraftLauncher();
+            .registerTypeAdapter(Date.class, new DateAdapter())
+            .registerTypeAdapterFactory(new LauncherSectionAdapters()).create();
 
     /**
-     * The configuration used to retrieve data from the file
+     * The metrics which receive the phases of the loads and saves of every launcher file
      */
-    private final DirectConfiguration configuration;
+    private static volatile LauncherMetrics metrics = LauncherMetrics.NONE;
 
     /**
-     * A representation of all the launcher data
+     * The shared store of the launcher data, which is also used by profile managers of the same file
      */
-    private final LauncherContext launcherContext;
+    private final LauncherDataStore store;
 
     /**
      * Initiates a new {@link MinecraftLauncher} instance from the given path
@@ -82,8 +87,7 @@ public class MinecraftLauncher {
      * @param path Path to create from. Must be the launcher_profiles.json file!
      */
     public MinecraftLauncher(String path) {
-        configuration = DirectConfiguration.of(JsonFile.of(path));
-        launcherContext = GSON.fromJson(configuration.getContent(), LauncherContext.class);
+        store = LauncherDataStore.of(path);
     }
 
     /**
@@ -94,21 +98,69 @@ public class MinecraftLauncher {
     }
 
     /**
-     * Returns the exposed launcher data
+     * Returns the exposed launcher data. The file is parsed on the first invocation, and the profiles saved
+     * through a {@link net.reflxction.launcherlib3.profile.ProfileManager} are reflected without parsing it again.
+     * <p>
+     * The returned context is an immutable snapshot, which is replaced when the file is reloaded or saved.
      *
      * @return The launcher's data
      */
     public LauncherContext getLauncherContext() {
-        return launcherContext;
+        return store.getContext();
+    }
+
+    /**
+     * Re-reads the launcher file, and returns the updated launcher data.
+     *
+     * @return The updated launcher data
+     */
+    public LauncherContext reload() {
+        return store.reload();
+    }
+
+    /**
+     * Returns the exposed launcher data asynchronously. The file is parsed on the
+     * {@link LauncherDataStore#setExecutor(java.util.concurrent.Executor) I/O executor} if it was not parsed yet.
+     *
+     * @return A future which is completed with the launcher's data
+     * @see #getLauncherContext()
+     */
+    public CompletableFuture<LauncherContext> loadAsync() {
+        return store.submit(store::getContext);
+    }
+
+    /**
+     * Re-reads the launcher file asynchronously, on the
+     * {@link LauncherDataStore#setExecutor(java.util.concurrent.Executor) I/O executor}. The file is read after
+     * every asynchronous operation which was previously issued on it.
+     *
+     * @return A future which is completed with the updated launcher data
+     * @see #reload()
+     */
+    public CompletableFuture<LauncherContext> reloadAsync() {
+        return store.submit(store::reload);
+    }
+
+    /**
+     * Returns the watcher of the launcher file. The watcher reloads the launcher data whenever the file is
+     * changed by another program, such as the launcher itself, and notifies its listeners of every profile that
+     * was added, removed or changed. The watcher is started on the first invocation.
+     *
+     * @return The watcher of the launcher file
+     */
+    public LauncherFileWatcher getWatcher() {
+        return store.getWatcher();
     }
 
     /**
      * Returns the launcher content as a {@link JsonObject}.
+     * <p>
+     * The tree is not kept by the launcher, and is read from the file on every invocation.
      *
      * @return The launcher content
      */
     public JsonObject getAsJson() {
-        return configuration.getContent();
+        return LauncherFileReader.readTree(store.getFile());
     }
 
     /**
@@ -124,9 +176,23 @@ public class MinecraftLauncher {
      * @author Mojang
      */
     public static File getExpectedMinecraftDirectory() {
+        File file = resolveMinecraftDirectory();
+        if (!file.exists() && !file.mkdirs()) {
+            throw new RuntimeException("The working directory could not be created: " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the directory which is expected to contain Minecraft's data directory, without creating it
+     *
+     * @return Minecraft's working directory
+     * @author Mojang
+     */
+    private static File resolveMinecraftDirectory() {
         final String property = System.getProperty("user.home", ".");
         File file;
-        switch (getPlatform()) {
+        switch (Platform.CURRENT) {
             case LINUX:
             case SOLARIS: {
                 file = new File(property, '.' + WORKING_DIRECTORY_NAME + '/');
@@ -146,19 +212,47 @@ public class MinecraftLauncher {
                 break;
             }
         }
-        if (!file.exists() && !file.mkdirs()) {
-            throw new RuntimeException("The working directory could not be created: " + file);
-        }
         return file;
     }
 
     /**
-     * Returns the singleton instance of the {@link MinecraftLauncher}.
+     * Sets the metrics which receive the timings and sizes of the phases of the loads and saves of every launcher
+     * file. Phases are not measured by default.
+     *
+     * @param metrics The new metrics, or {@code null} to stop measuring phases
+     */
+    public static void setMetrics(LauncherMetrics metrics) {
+        MinecraftLauncher.metrics = metrics == null ? LauncherMetrics.NONE : metrics;
+    }
+
+    /**
+     * Returns the metrics which receive the phases of the loads and saves of every launcher file
+     *
+     * @return The metrics, which are {@link LauncherMetrics#NONE} if phases are not measured
+     */
+    public static LauncherMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the singleton instance of the {@link MinecraftLauncher}. The instance is created on the first
+     * invocation, and the file is parsed the first time its data is requested.
      *
      * @return The singleton instance
      */
     public static MinecraftLauncher getInstance() {
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Holds the default instance of the launcher, so that it is only created when it is requested
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * A default instance of the launcher. Useful if no new initiation is required.
+         */
+        private static final MinecraftLauncher INSTANCE = new MinecraftLauncher();
     }
 
     /**
@@ -168,7 +262,7 @@ public class MinecraftLauncher {
      * @author Mojang
      */
     private static Platform getPlatform() {
-        String osName = System.getProperty("os.name").toLowerCase();
+        String osName = System.getProperty("os.name", "").toLowerCase();
         if (osName.contains("win")) {
             return Platform.WINDOWS;
         }
@@ -220,7 +314,12 @@ public class MinecraftLauncher {
         /**
          * An undefined operating system
          */
-        UNKNOWN
+        UNKNOWN;
+
+        /**
+         * The platform this library runs on, which is only resolved once
+         */
+        private static final Platform CURRENT = getPlatform();
     }
 
 }
@@ -0,0 +1,143 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.adapter;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Reads the values of the fields bound by the adapters generated from {@link net.reflxction.launcherlib3.launcher.LauncherSection},
+ * the same way Gson's own adapters read them. A {@code null} value leaves a primitive field as it is.
+ */
+public final class AdapterSupport {
+
+    private AdapterSupport() {
+    }
+
+    /**
+     * Reads a string. Booleans and numbers are read as their text.
+     *
+     * @param in The reader
+     * @return The string, or {@code null} if the value is null
+     * @throws IOException If the value could not be read
+     */
+    public static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * Reads a string, and replaces it with its instance in the {@link StringPool#getShared() shared pool} if
+     * there is one
+     *
+     * @param in The reader
+     * @return The string, or {@code null} if the value is null
+     * @throws IOException If the value could not be read
+     * @see Deduplicate
+     */
+    public static String nextDeduplicatedString(JsonReader in) throws IOException {
+        String value = nextString(in);
+        StringPool pool = StringPool.getShared();
+        return pool == null ? value : pool.intern(value);
+    }
+
+    /**
+     * Reads a boolean. Strings are parsed as booleans.
+     *
+     * @param in      The reader
+     * @param current The current value of the field
+     * @return The boolean, or the current value if the value is null
+     * @throws IOException If the value could not be read
+     */
+    public static boolean nextBoolean(JsonReader in, boolean current) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        if (token == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    /**
+     * Reads an int
+     *
+     * @param in      The reader
+     * @param current The current value of the field
+     * @return The int, or the current value if the value is null
+     * @throws IOException If the value could not be read
+     */
+    public static int nextInt(JsonReader in, int current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads a long
+     *
+     * @param in      The reader
+     * @param current The current value of the field
+     * @return The long, or the current value if the value is null
+     * @throws IOException If the value could not be read
+     */
+    public static long nextLong(JsonReader in, long current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        try {
+            return in.nextLong();
+        } catch (NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    /**
+     * Reads a double
+     *
+     * @param in      The reader
+     * @param current The current value of the field
+     * @return The double, or the current value if the value is null
+     * @throws IOException If the value could not be read
+     */
+    public static double nextDouble(JsonReader in, double current) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return current;
+        }
+        return in.nextDouble();
+    }
+
+}
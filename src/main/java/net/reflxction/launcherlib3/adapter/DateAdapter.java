@@ -15,37 +15,283 @@
  */
 package net.reflxction.launcherlib3.adapter;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParseException;
-import org.joda.time.DateTime;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.metrics.LauncherMetrics;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
 import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * A {@link java.util.Date} adapter. This is used in order to give a specific serialization/deserialization strategy
  * for Gson.
+ * <p>
+ * Dates are read and written in the ISO-8601 format the launcher uses, such as {@code 2019-01-02T10:11:12.345Z}.
+ * Parsing works directly on the characters of the value. A date which was read and not modified is written back
+ * exactly as it was read, whatever its precision and time zone offset.
  */
-public class DateAdapter implements JsonDeserializer<Date> {
+public class DateAdapter extends TypeAdapter<Date> {
+
+    @Override
+    public void write(JsonWriter out, Date date) throws IOException {
+        if (date == null) {
+            out.nullValue();
+        } else {
+            out.value(format(date));
+        }
+    }
+
+    @Override
+    public Date read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String text = in.nextString();
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        if (metrics == LauncherMetrics.NONE) {
+            return parse(text);
+        }
+        long start = System.nanoTime();
+        Date date = parse(text);
+        metrics.onDateParsed(System.nanoTime() - start);
+        return date;
+    }
 
     /**
-     * Gson invokes this call-back method during deserialization when it encounters a field of the
-     * specified type.
-     * <p>In the implementation of this call-back method, you should consider invoking
-     * {@link JsonDeserializationContext#deserialize(JsonElement, Type)} method to create objects
-     * for any non-trivial field of the returned object. However, you should never invoke it on the
-     * the same type passing {@code json} since that will cause an infinite loop (Gson will call your
-     * call-back method again).
+     * Parses the given ISO-8601 date. The date may have a time of day, with or without seconds and fractions of
+     * a second, and a time zone offset ({@code Z}, {@code +HH:mm}, {@code +HHmm} or {@code +HH}). Dates without
+     * an offset are in the default time zone. Offsets range from {@code -18:00} to {@code +18:00}.
      *
-     * @param json    The Json data being deserialized
-     * @param typeOfT The type of the Object to deserialize to
-     * @return a deserialized object of the specified type typeOfT which is a subclass of {@code T}
-     * @throws JsonParseException if json is not in the expected format of {@code typeofT}
+     * @param text Date to parse
+     * @return The parsed date, which is formatted back as the given text as long as it is not modified
+     * @throws JsonSyntaxException If the text is not a valid ISO-8601 date
      */
-    @Override
-    public Date deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-        return new DateTime(json.getAsString()).toDate();
+    public static Date parse(String text) {
+        return new ParsedDate(text, parseMillis(text));
+    }
+
+    /**
+     * Formats the given date. Dates which were {@link #parse(String) parsed} and not modified are formatted as
+     * the text they were parsed from, and other dates as UTC with milliseconds, like {@code 2019-01-02T10:11:12.345Z}.
+     *
+     * @param date Date to format
+     * @return The formatted date
+     */
+    public static String format(Date date) {
+        if (date instanceof ParsedDate) {
+            ParsedDate parsed = (ParsedDate) date;
+            if (parsed.millis == parsed.getTime()) {
+                return parsed.text;
+            }
+        }
+        long time = date.getTime();
+        long days = Math.floorDiv(time, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(time, 86_400_000L);
+
+        // Civil date from days since the epoch (proleptic Gregorian calendar)
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        int dayOfEra = (int) (z - era * 146_097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] chars = new char[24];
+        if (year < 0 || year > 9999) {
+            return year + new String(write(chars, month, day, millisOfDay), 4, 20);
+        }
+        writeDigits(chars, 0, (int) year, 4);
+        return new String(write(chars, month, day, millisOfDay));
+    }
+
+    private static char[] write(char[] chars, int month, int day, int millisOfDay) {
+        chars[4] = '-';
+        writeDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        writeDigits(chars, 8, day, 2);
+        chars[10] = 'T';
+        writeDigits(chars, 11, millisOfDay / 3_600_000, 2);
+        chars[13] = ':';
+        writeDigits(chars, 14, millisOfDay / 60_000 % 60, 2);
+        chars[16] = ':';
+        writeDigits(chars, 17, millisOfDay / 1000 % 60, 2);
+        chars[19] = '.';
+        writeDigits(chars, 20, millisOfDay % 1000, 3);
+        chars[23] = 'Z';
+        return chars;
+    }
+
+    private static void writeDigits(char[] chars, int offset, int value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Parses the given ISO-8601 date into milliseconds since the epoch
+     *
+     * @param text Date to parse
+     * @return The milliseconds since the epoch
+     * @throws JsonSyntaxException If the text is not a valid ISO-8601 date
+     */
+    private static long parseMillis(String text) {
+        int length = text.length();
+        int year = digits(text, 0, 4);
+        expect(text, 4, '-');
+        int month = digits(text, 5, 2);
+        expect(text, 7, '-');
+        int day = digits(text, 8, 2);
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        int position = 10;
+        boolean local = true;
+        int offset = 0;
+        if (position < length) {
+            expect(text, 10, 'T');
+            hour = digits(text, 11, 2);
+            expect(text, 13, ':');
+            minute = digits(text, 14, 2);
+            position = 16;
+            if (position < length && text.charAt(position) == ':') {
+                second = digits(text, position + 1, 2);
+                position += 3;
+                if (position < length && (text.charAt(position) == '.' || text.charAt(position) == ',')) {
+                    int start = ++position;
+                    while (position < length && isDigit(text.charAt(position))) {
+                        if (position - start < 3) {
+                            millis = millis * 10 + (text.charAt(position) - '0');
+                        }
+                        position++;
+                    }
+                    if (position == start) {
+                        throw invalid(text, position);
+                    }
+                    for (int digits = position - start; digits < 3; digits++) {
+                        millis *= 10;
+                    }
+                }
+            }
+            if (position < length) {
+                char c = text.charAt(position);
+                if (c == 'Z') {
+                    local = false;
+                    position++;
+                } else if (c == '+' || c == '-') {
+                    int offsetHours = digits(text, position + 1, 2);
+                    int offsetMinutes = 0;
+                    position += 3;
+                    if (position < length && text.charAt(position) == ':') {
+                        position++;
+                    }
+                    if (position < length) {
+                        offsetMinutes = digits(text, position, 2);
+                        position += 2;
+                    }
+                    if (offsetMinutes > 59 || offsetHours * 60 + offsetMinutes > 18 * 60) {
+                        throw new JsonSyntaxException("Invalid time zone offset: " + text);
+                    }
+                    offset = (c == '-' ? -1 : 1) * (offsetHours * 60 + offsetMinutes);
+                    local = false;
+                }
+            }
+        }
+        if (position != length) {
+            throw invalid(text, position);
+        }
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            throw new JsonSyntaxException("Invalid date: " + text);
+        }
+
+        // Days since the epoch from the civil date (proleptic Gregorian calendar)
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146_097L + dayOfEra - 719_468;
+
+        long time = ((days * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+        if (local) {
+            TimeZone zone = TimeZone.getDefault();
+            return time - zone.getOffset(time - zone.getOffset(time));
+        }
+        return time - offset * 60_000L;
+    }
+
+    private static int digits(String text, int offset, int length) {
+        if (offset + length > text.length()) {
+            throw invalid(text, text.length());
+        }
+        int value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                throw invalid(text, i);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void expect(String text, int offset, char expected) {
+        if (offset >= text.length() || text.charAt(offset) != expected) {
+            throw invalid(text, offset);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static JsonSyntaxException invalid(String text, int position) {
+        return new JsonSyntaxException("Invalid date: " + text + " (at index " + position + ")");
+    }
+
+    /**
+     * A date which remembers the text it was parsed from
+     */
+    private static final class ParsedDate extends Date {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The parsed text
+         */
+        private final String text;
+
+        /**
+         * The time the text represents. If the date no longer has this time, it was modified.
+         */
+        private final long millis;
+
+        ParsedDate(String text, long millis) {
+            super(millis);
+            this.text = text;
+            this.millis = millis;
+        }
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.adapter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the getter which the generated adapter of a {@link net.reflxction.launcherlib3.launcher.LauncherSection}
+ * type writes the given field through, when the getter is not named after the field. The getter may return
+ * another type than the field, in which case its value is written as that type: a map field can be written
+ * through a view of the map, and a field holding an undecoded value through the getter of the decoded value.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.SOURCE)
+public @interface FieldGetter {
+
+    /**
+     * The name of the field which is written through the getter
+     *
+     * @return The field name
+     */
+    String value();
+
+}
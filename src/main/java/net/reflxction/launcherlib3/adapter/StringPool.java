@@ -0,0 +1,230 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.adapter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of strings, which lets equal strings read from launcher files share a single instance.
+ * <p>
+ * Values such as version IDs, game and Java directories and Java arguments repeat across many profiles and
+ * many files. When a pool is {@link #setShared(StringPool) shared}, the string fields of {@link Deduplicate}
+ * types are replaced by their pooled instances as they are read, so the duplicates can be collected right away.
+ * <p>
+ * The pool is a fixed-size table which never grows: a string takes the slot of its hash, replacing any other
+ * string which was there. Lookups never lock, and the pool may be used by any number of threads at once.
+ */
+public final class StringPool {
+
+    /**
+     * The default number of slots
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The maximum length of the pooled strings. Longer strings are returned as they are.
+     */
+    public static final int MAX_LENGTH = 1024;
+
+    /**
+     * The size of a string object without its array, on a 64-bit VM with compressed references
+     */
+    private static final int STRING_SIZE = 24;
+
+    /**
+     * The size of the header of the array which holds the characters of a string
+     */
+    private static final int ARRAY_HEADER = 16;
+
+    /**
+     * Whether strings whose characters are all Latin-1 are stored with one byte per character. This is the
+     * default since Java 9, unless it is disabled with {@code -XX:-CompactStrings}.
+     */
+    private static final boolean COMPACT_STRINGS = compactStrings();
+
+    /**
+     * The pool used when reading launcher files, or {@code null} if strings are not deduplicated
+     */
+    private static volatile StringPool shared;
+
+    /**
+     * The pooled strings
+     */
+    private final AtomicReferenceArray<String> table;
+
+    /**
+     * The number of strings which were replaced by a pooled instance
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The number of strings which were not in the pool
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The estimated number of bytes of the strings which were replaced by a pooled instance
+     */
+    private final LongAdder bytesSaved = new LongAdder();
+
+    /**
+     * Initiates a new pool with {@link #DEFAULT_CAPACITY} slots
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initiates a new pool
+     *
+     * @param capacity The maximum number of pooled strings. This is rounded up to a power of two.
+     */
+    public StringPool(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        table = new AtomicReferenceArray<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+    }
+
+    /**
+     * Returns the pooled instance of the given string. If the pool has no equal string, the given string is
+     * pooled and returned.
+     *
+     * @param value String to look up
+     * @return The pooled instance, or the given string. This is {@code null} if the given string is {@code null}.
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > MAX_LENGTH) {
+            return value;
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ hash >>> 16) & (table.length() - 1);
+        String pooled = table.get(slot);
+        if (pooled != null && pooled.equals(value)) {
+            if (pooled != value) {
+                hits.increment();
+                bytesSaved.add(sizeOf(value));
+            }
+            return pooled;
+        }
+        misses.increment();
+        table.set(slot, value);
+        return value;
+    }
+
+    /**
+     * Returns the number of slots of this pool
+     *
+     * @return The capacity
+     */
+    public int getCapacity() {
+        return table.length();
+    }
+
+    /**
+     * Returns the number of strings which were replaced by a pooled instance
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of strings which were not in the pool
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the estimated number of bytes saved by this pool, which is the size of every duplicate string
+     * that was replaced by a pooled instance. The size of a string is that of its object and its array on a 64-bit
+     * VM with compressed references, where the array holds one byte per character if the string is compact
+     * (Latin-1 on Java 9 and later), and two bytes per character otherwise.
+     *
+     * @return The estimated bytes saved
+     */
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    /**
+     * Removes every string from this pool and resets its statistics
+     */
+    public void clear() {
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, null);
+        }
+        hits.reset();
+        misses.reset();
+        bytesSaved.reset();
+    }
+
+    /**
+     * Returns the estimated size of the given string, with its array
+     */
+    private static long sizeOf(String value) {
+        int bytesPerChar = COMPACT_STRINGS && isLatin1(value) ? 1 : 2;
+        long array = ARRAY_HEADER + (long) bytesPerChar * value.length();
+        return STRING_SIZE + (array + 7 & ~7L);
+    }
+
+    private static boolean isLatin1(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean compactStrings() {
+        if (System.getProperty("java.specification.version", "").startsWith("1.")) {
+            return false;
+        }
+        try {
+            return !ManagementFactory.getRuntimeMXBean().getInputArguments().contains("-XX:-CompactStrings");
+        } catch (RuntimeException | LinkageError e) {
+            // The arguments are not available (such as without the management module), assume the default
+            return true;
+        }
+    }
+
+    /**
+     * Sets the pool which deduplicates the strings read from launcher files. Strings are not deduplicated by
+     * default.
+     *
+     * @param pool The new pool, or {@code null} to stop deduplicating strings
+     */
+    public static void setShared(StringPool pool) {
+        shared = pool;
+    }
+
+    /**
+     * Returns the pool which deduplicates the strings read from launcher files
+     *
+     * @return The shared pool, or {@code null} if strings are not deduplicated
+     */
+    public static StringPool getShared() {
+        return shared;
+    }
+
+}
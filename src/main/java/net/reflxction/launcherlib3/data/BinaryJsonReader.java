@@ -0,0 +1,416 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.reflxction.launcherlib3.profile.ProfileIcon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link JsonReader} over values encoded by a {@link BinaryJsonWriter}.
+ * <p>
+ * Maps are read by the adapters generated for the launcher sections, which only use the public API of the
+ * reader. Gson's own map adapter relies on the internal state of text readers, hence it cannot be used with this
+ * reader.
+ * <p>
+ * Raw values are read as {@link LazySection lazy sections} over a copy of their bytes (see
+ * {@link #nextSection(TypeAdapter)}), and raw strings as undecoded icons (see {@link #nextIcon()}). Other adapters
+ * read both as strings.
+ *
+ * @see ProfileIcon.Adapter
+ * @see LazySection.Factory
+ */
+public final class BinaryJsonReader extends JsonReader {
+
+    /**
+     * A reader which fails on any use. The text reader of the parent class is never used.
+     */
+    private static final Reader UNREADABLE = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * The encoded bytes
+     */
+    private final byte[] bytes;
+
+    /**
+     * The index after the last encoded byte
+     */
+    private final int limit;
+
+    /**
+     * The launcher file the values were encoded from, or {@code null} if it is unknown
+     */
+    private final File file;
+
+    /**
+     * The strings which were read and may be referenced again, in the order they were read
+     */
+    private final List<String> table = new ArrayList<>();
+
+    /**
+     * The current position in the bytes
+     */
+    private int position;
+
+    /**
+     * Initiates a new reader
+     *
+     * @param file   The launcher file the values were encoded from, which is reported by the lazy sections, or
+     *               {@code null} if it is unknown
+     * @param bytes  The encoded bytes
+     * @param offset The index of the first encoded byte
+     * @param length The number of encoded bytes
+     * @param preset The strings the table starts with, which must be those the values were encoded with
+     */
+    BinaryJsonReader(File file, byte[] bytes, int offset, int length, List<String> preset) {
+        super(UNREADABLE);
+        this.file = file;
+        this.bytes = bytes;
+        this.position = offset;
+        this.limit = offset + length;
+        this.table.addAll(preset);
+    }
+
+    /**
+     * Returns the next value as an icon. Raw strings are not decoded, and the icon holds a copy of their bytes.
+     *
+     * @return The icon
+     * @throws IllegalStateException If the next value is not a string
+     */
+    public ProfileIcon nextIcon() throws IOException {
+        if (position < limit && bytes[position] == BinaryJsonWriter.RAW_STRING) {
+            position++;
+            int length = readLength();
+            ProfileIcon icon = ProfileIcon.mapped(ByteBuffer.wrap(bytes), position, length);
+            position += length;
+            return icon;
+        }
+        return ProfileIcon.of(nextString());
+    }
+
+    /**
+     * Returns the next value as a section. Raw values are only deserialized with the given adapter when they are
+     * requested, and the section holds a copy of their bytes. Other values are read with the adapter right away.
+     *
+     * @param adapter The adapter of the value
+     * @param <T>     The type of the value
+     * @return The section
+     */
+    public <T> LazySection<T> nextSection(TypeAdapter<T> adapter) throws IOException {
+        if (position < limit && bytes[position] == BinaryJsonWriter.RAW) {
+            position++;
+            int length = readLength();
+            LazySection<T> section = LazySection.mapped(file, ByteBuffer.wrap(bytes), position, position + length, adapter);
+            position += length;
+            return section;
+        }
+        return LazySection.of(adapter.read(this));
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (position >= limit) {
+            return JsonToken.END_DOCUMENT;
+        }
+        switch (bytes[position]) {
+            case BinaryJsonWriter.BEGIN_OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            case BinaryJsonWriter.END_OBJECT:
+                return JsonToken.END_OBJECT;
+            case BinaryJsonWriter.BEGIN_ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case BinaryJsonWriter.END_ARRAY:
+                return JsonToken.END_ARRAY;
+            case BinaryJsonWriter.NAME:
+                return JsonToken.NAME;
+            case BinaryJsonWriter.STRING:
+            case BinaryJsonWriter.RAW:
+            case BinaryJsonWriter.RAW_STRING:
+                return JsonToken.STRING;
+            case BinaryJsonWriter.TRUE:
+            case BinaryJsonWriter.FALSE:
+                return JsonToken.BOOLEAN;
+            case BinaryJsonWriter.NULL:
+                return JsonToken.NULL;
+            case BinaryJsonWriter.LONG:
+            case BinaryJsonWriter.DOUBLE:
+            case BinaryJsonWriter.NUMBER:
+                return JsonToken.NUMBER;
+            default:
+                throw new IOException("Invalid tag " + bytes[position] + " at byte " + position);
+        }
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        return readString();
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        if (token != JsonToken.STRING && token != JsonToken.NUMBER) {
+            throw unexpected(JsonToken.STRING, token);
+        }
+        switch (bytes[position++]) {
+            case BinaryJsonWriter.LONG:
+                return Long.toString(readZigZag());
+            case BinaryJsonWriter.DOUBLE:
+                return Double.toString(Double.longBitsToDouble(readLong()));
+            case BinaryJsonWriter.RAW: {
+                int length = readLength();
+                String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+                position += length;
+                return value;
+            }
+            case BinaryJsonWriter.RAW_STRING: {
+                int length = readLength();
+                String value = LauncherJsonReader.decodeString(ByteBuffer.wrap(bytes), position, length);
+                position += length;
+                return value;
+            }
+            default:
+                return readString();
+        }
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        JsonToken token = peek();
+        if (token != JsonToken.BOOLEAN) {
+            throw unexpected(JsonToken.BOOLEAN, token);
+        }
+        return bytes[position++] == BinaryJsonWriter.TRUE;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        JsonToken token = peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            throw unexpected(JsonToken.NUMBER, token);
+        }
+        switch (bytes[position]) {
+            case BinaryJsonWriter.LONG:
+                position++;
+                return readZigZag();
+            case BinaryJsonWriter.DOUBLE:
+                position++;
+                return Double.longBitsToDouble(readLong());
+            default:
+                return Double.parseDouble(nextString());
+        }
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        JsonToken token = peek();
+        if (token != JsonToken.NUMBER && token != JsonToken.STRING) {
+            throw unexpected(JsonToken.NUMBER, token);
+        }
+        int start = position;
+        if (bytes[position] == BinaryJsonWriter.LONG) {
+            position++;
+            return readZigZag();
+        }
+        double value = nextDouble();
+        long result = (long) value;
+        if (result != value) {
+            throw new NumberFormatException("Expected a long but was " + value + " at byte " + start);
+        }
+        return result;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        int start = position;
+        long value = nextLong();
+        if ((int) value != value) {
+            throw new NumberFormatException("Expected an int but was " + value + " at byte " + start);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = peek();
+            switch (token) {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    depth++;
+                    position++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    position++;
+                    break;
+                case END_DOCUMENT:
+                    return;
+                case NAME:
+                    nextName();
+                    break;
+                case STRING:
+                case NUMBER:
+                    nextString();
+                    break;
+                default:
+                    position++;
+            }
+        } while (depth > 0);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String getPath() {
+        return "binary value at byte " + position;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " at byte " + position;
+    }
+
+    private void expect(JsonToken token) throws IOException {
+        JsonToken actual = peek();
+        if (actual != token) {
+            throw unexpected(token, actual);
+        }
+        position++;
+    }
+
+    private IllegalStateException unexpected(JsonToken expected, JsonToken actual) {
+        return new IllegalStateException("Expected " + expected + " but was " + actual + " at byte " + position);
+    }
+
+    private String readString() throws IOException {
+        long prefix = readVarLong();
+        if ((prefix & 1) == 1) {
+            long index = prefix >>> 1;
+            if (index >= table.size()) {
+                throw new IOException("Invalid string reference " + index + " at byte " + position);
+            }
+            return table.get((int) index);
+        }
+        long length = prefix >>> 1;
+        if (length > limit - position) {
+            throw new IOException("Invalid string length " + length + " at byte " + position);
+        }
+        String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+        position += (int) length;
+        if (value.length() <= BinaryJsonWriter.MAX_TABLE_LENGTH) {
+            table.add(value);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the length of a raw value, and checks that its bytes follow
+     */
+    private int readLength() throws IOException {
+        long length = readVarLong();
+        if (length > limit - position) {
+            throw new IOException("Invalid length " + length + " at byte " + position);
+        }
+        return (int) length;
+    }
+
+    private long readZigZag() throws IOException {
+        long value = readVarLong();
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= limit) {
+                throw new IOException("Unexpected end of the binary value");
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Invalid number at byte " + position);
+    }
+
+    private long readLong() throws IOException {
+        if (limit - position < 8) {
+            throw new IOException("Unexpected end of the binary value");
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | bytes[position++] & 0xFF;
+        }
+        return value;
+    }
+
+}
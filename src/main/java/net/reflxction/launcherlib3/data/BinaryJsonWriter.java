@@ -0,0 +1,359 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link JsonWriter} which encodes the written values in a compact binary form, to be read back with a
+ * {@link BinaryJsonReader}.
+ * <p>
+ * Every value is a one-byte tag, followed by its payload. Strings are written in UTF-8 after their length, and
+ * names and short strings which were already written are replaced by their index in a table of the written
+ * strings. The table can start with predefined strings, such as the names of the fields of the encoded types, so
+ * that even their first occurrence is a reference. The reader must then be given the same strings.
+ * <p>
+ * Values can also be copied from the UTF-8 content of a launcher file without being decoded: raw values are
+ * read back as {@link LazySection lazy sections}, and raw strings as undecoded icons or as the strings they
+ * contain.
+ */
+class BinaryJsonWriter extends JsonWriter {
+
+    static final byte BEGIN_OBJECT = 1;
+    static final byte END_OBJECT = 2;
+    static final byte BEGIN_ARRAY = 3;
+    static final byte END_ARRAY = 4;
+    static final byte NAME = 5;
+    static final byte STRING = 6;
+    static final byte TRUE = 7;
+    static final byte FALSE = 8;
+    static final byte NULL = 9;
+    static final byte LONG = 10;
+    static final byte DOUBLE = 11;
+    static final byte NUMBER = 12;
+    static final byte RAW = 13;
+    static final byte RAW_STRING = 14;
+
+    /**
+     * The maximum length of the strings which are added to the table
+     */
+    static final int MAX_TABLE_LENGTH = 64;
+
+    /**
+     * A writer which fails on any use. The text writer of the parent class is never used.
+     */
+    private static final Writer UNWRITABLE = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * The indexes of the strings in the table
+     */
+    private final Map<String, Integer> table = new HashMap<>();
+
+    /**
+     * The encoded bytes
+     */
+    private byte[] bytes;
+
+    /**
+     * The number of encoded bytes
+     */
+    private int size;
+
+    /**
+     * The name of the next value, which is written with the value. This is dropped if the value is null and
+     * nulls are not serialized.
+     */
+    private String deferredName;
+
+    /**
+     * Initiates a new writer
+     *
+     * @param capacity The initial capacity, in bytes
+     * @param preset   The strings the table starts with
+     */
+    BinaryJsonWriter(int capacity, List<String> preset) {
+        super(UNWRITABLE);
+        bytes = new byte[Math.max(capacity, 16)];
+        for (String value : preset) {
+            table.putIfAbsent(value, table.size());
+        }
+    }
+
+    /**
+     * Returns the encoded bytes
+     *
+     * @return A copy of the encoded bytes
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        writeDeferredName();
+        writeTag(BEGIN_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        writeTag(END_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        writeDeferredName();
+        writeTag(BEGIN_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        writeTag(END_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        if (deferredName != null) {
+            throw new IllegalStateException("Expected a value after the name " + deferredName);
+        }
+        deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        writeDeferredName();
+        writeTag(STRING);
+        writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        throw new UnsupportedOperationException("Raw JSON values cannot be written in binary");
+    }
+
+    /**
+     * Writes a JSON value as its raw UTF-8 bytes
+     *
+     * @param source The content containing the value
+     * @param start  The index of the first byte of the value
+     * @param end    The index after the last byte of the value
+     */
+    void rawValue(ByteBuffer source, int start, int end) throws IOException {
+        writeDeferredName();
+        writeTag(RAW);
+        writeBytes(source, start, end);
+    }
+
+    /**
+     * Writes a string as the raw UTF-8 bytes of its JSON string, escape sequences included
+     *
+     * @param source The content containing the string
+     * @param start  The index of the first byte of the string, after its opening quote
+     * @param end    The index of its closing quote
+     */
+    void rawString(ByteBuffer source, int start, int end) throws IOException {
+        writeDeferredName();
+        writeTag(RAW_STRING);
+        writeBytes(source, start, end);
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (deferredName != null && !getSerializeNulls()) {
+            deferredName = null;
+            return this;
+        }
+        writeDeferredName();
+        writeTag(NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        writeDeferredName();
+        writeTag(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        return value == null ? nullValue() : value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        if (!isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        writeDeferredName();
+        writeTag(DOUBLE);
+        writeLong(Double.doubleToRawLongBits(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        writeDeferredName();
+        writeTag(LONG);
+        writeVarLong(value << 1 ^ value >> 63);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return nullValue();
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return value(value.longValue());
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return value(value.doubleValue());
+        }
+        writeDeferredName();
+        writeTag(NUMBER);
+        writeString(value.toString());
+        return this;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void writeDeferredName() throws IOException {
+        if (deferredName != null) {
+            writeTag(NAME);
+            writeString(deferredName);
+            deferredName = null;
+        }
+    }
+
+    private void writeBytes(ByteBuffer source, int start, int end) {
+        int length = end - start;
+        writeVarLong(length);
+        ensureCapacity(length);
+        ByteBuffer bytes = source.duplicate();
+        bytes.position(start);
+        bytes.get(this.bytes, size, length);
+        size += length;
+    }
+
+    private void writeTag(byte tag) {
+        ensureCapacity(1);
+        bytes[size++] = tag;
+    }
+
+    /**
+     * Writes a string. The string is prefixed with a number: an even number is twice the length of the UTF-8
+     * bytes which follow, and an odd number is twice the index of the string in the table, plus one.
+     */
+    private void writeString(String value) throws IOException {
+        Integer index = table.get(value);
+        if (index != null) {
+            writeVarLong(index * 2L + 1);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isSurrogate(value.charAt(i))) {
+                checkSurrogates(value);
+                break;
+            }
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(encoded.length * 2L);
+        ensureCapacity(encoded.length);
+        System.arraycopy(encoded, 0, bytes, size, encoded.length);
+        size += encoded.length;
+        if (value.length() <= MAX_TABLE_LENGTH) {
+            table.put(value, table.size());
+        }
+    }
+
+    /**
+     * Checks that the surrogates of the given string are paired, as unpaired surrogates cannot be encoded in UTF-8
+     */
+    private static void checkSurrogates(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                throw new IOException("Unpaired surrogate at index " + i + " of a string");
+            }
+        }
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (value >>> shift);
+        }
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+        if (size + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+        }
+    }
+
+}
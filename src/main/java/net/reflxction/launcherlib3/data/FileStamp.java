@@ -0,0 +1,96 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Represents the state of a file at a point of time. This is used to detect whether a file was changed
+ * since it was read.
+ */
+public final class FileStamp {
+
+    /**
+     * The stamp of a file which does not exist
+     */
+    public static final FileStamp MISSING = new FileStamp(-1, 0);
+
+    /**
+     * The size of the file, in bytes
+     */
+    private final long size;
+
+    /**
+     * The last modification time of the file, in milliseconds
+     */
+    private final long lastModified;
+
+    private FileStamp(long size, long lastModified) {
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the size of the file, in bytes
+     *
+     * @return The file size, or -1 if the file does not exist
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the last modification time of the file
+     *
+     * @return The last modification time, in milliseconds
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Returns the current stamp of the given file
+     *
+     * @param file File to get for
+     * @return The current stamp of the file
+     */
+    public static FileStamp of(File file) {
+        if (!file.exists()) {
+            return MISSING;
+        }
+        return new FileStamp(file.length(), file.lastModified());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileStamp)) return false;
+        FileStamp stamp = (FileStamp) o;
+        return size == stamp.size && lastModified == stamp.lastModified;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified);
+    }
+
+    @Override
+    public String toString() {
+        return "FileStamp{size=" + size + ", lastModified=" + lastModified + '}';
+    }
+
+}
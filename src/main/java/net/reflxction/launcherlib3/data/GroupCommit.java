@@ -0,0 +1,177 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Merges write requests which are issued within a time window into a single physical write.
+ * <p>
+ * The first request of a window schedules the write at the end of the window, and every other request issued
+ * before the write starts is merged into it. The write itself is responsible of writing the latest state, as
+ * it represents every merged request.
+ * <p>
+ * The scheduled writes are run by a given executor, such as the one of the {@link LauncherDataStore#submit(
+ * java.util.function.Supplier) operations of the store}, so that they are ordered with the other operations on
+ * the file.
+ */
+public final class GroupCommit {
+
+    /**
+     * The scheduler which runs the delayed writes
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "LauncherLib Group Commit");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The physical write
+     */
+    private final Runnable write;
+
+    /**
+     * Held while the physical write runs, so that a scheduled write and a flush never write at once
+     */
+    private final Object lock = new Object();
+
+    /**
+     * The executor which runs the scheduled writes
+     */
+    private final Executor executor;
+
+    /**
+     * The length of the window, in nanoseconds
+     */
+    private final long window;
+
+    /**
+     * The total number of requests which were merged into the write of another request
+     */
+    private final AtomicLong merged = new AtomicLong();
+
+    /**
+     * The number of requests since the last write started
+     */
+    private int pending;
+
+    /**
+     * The completion of the next write, or {@code null} if no write is pending
+     */
+    private CompletableFuture<Integer> next;
+
+    /**
+     * The scheduled task of the next write
+     */
+    private ScheduledFuture<?> scheduled;
+
+    /**
+     * Initiates a new group commit
+     *
+     * @param write    The physical write
+     * @param executor The executor which runs the scheduled writes
+     * @param window   The length of the window
+     * @param unit     The unit of the window
+     */
+    public GroupCommit(Runnable write, Executor executor, long window, TimeUnit unit) {
+        this.write = write;
+        this.executor = executor;
+        this.window = unit.toNanos(window);
+    }
+
+    /**
+     * Requests a write. The write happens at the end of the current window, or at the end of a new window if
+     * none is open.
+     *
+     * @return A future which is completed after the write, with the number of requests merged into it
+     */
+    public synchronized CompletableFuture<Integer> request() {
+        pending++;
+        if (next == null) {
+            next = new CompletableFuture<>();
+            scheduled = SCHEDULER.schedule(() -> executor.execute(this::writeNext), window, TimeUnit.NANOSECONDS);
+        }
+        return next;
+    }
+
+    /**
+     * Performs the pending write immediately on the current thread, if there is one. This blocks until the write
+     * is done. If the write fails, the futures of its requests are completed with the failure, which is also
+     * rethrown.
+     */
+    public void flush() {
+        Throwable failure = writeNext();
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new CompletionException(failure);
+        }
+    }
+
+    /**
+     * Performs the pending write, if there is one, and completes the future of its requests
+     *
+     * @return The failure of the write, or {@code null} if it succeeded or there was nothing to write
+     */
+    private Throwable writeNext() {
+        CompletableFuture<Integer> future;
+        int requests;
+        synchronized (this) {
+            if (next == null) {
+                return null;
+            }
+            future = next;
+            requests = pending;
+            next = null;
+            pending = 0;
+            scheduled.cancel(false);
+        }
+        try {
+            synchronized (lock) {
+                write.run();
+            }
+            merged.addAndGet(requests - 1);
+            future.complete(requests);
+            return null;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            return t;
+        }
+    }
+
+    /**
+     * Returns the total number of requests which were merged into the write of another request, and hence
+     * did not cause a write of their own.
+     *
+     * @return The number of merged requests
+     */
+    public long getMergedRequests() {
+        return merged.get();
+    }
+
+}
@@ -0,0 +1,538 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+import net.reflxction.launcherlib3.metrics.LauncherEvent;
+import net.reflxction.launcherlib3.metrics.LauncherEvents;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+import net.reflxction.launcherlib3.profile.ProfileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * A shared store of the parsed data of a launcher file. There is only one store for every path, and it is shared
+ * by every {@link MinecraftLauncher} and {@link ProfileManager} which read from that path.
+ * <p>
+ * The file is parsed at most once until it is reloaded or invalidated, and every view (the {@link LauncherContext}
+ * and the profiles map) is served from the same parsed snapshot.
+ * <p>
+ * Snapshots are immutable, and are published through a single atomic reference: readers get a consistent view
+ * of the file without locking, while reloads and saves swap in a new snapshot.
+ *
+ * @see LauncherFileReader
+ */
+public final class LauncherDataStore {
+
+    /**
+     * All the created stores, assigned to the canonical path of their files
+     */
+    private static final Map<String, LauncherDataStore> STORES = new ConcurrentHashMap<>();
+
+    /**
+     * The number of times a patch is created before a save fails, when the file keeps being changed by another
+     * program while the patch is created
+     */
+    private static final int MAX_PATCH_ATTEMPTS = 3;
+
+    /**
+     * The default executor of the asynchronous operations
+     */
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "LauncherLib I/O");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The executor of the asynchronous operations
+     */
+    private static volatile Executor executor = DEFAULT_EXECUTOR;
+
+    /**
+     * Whether parsed snapshots are cached in binary sidecar files. This is enabled by default if the
+     * "launcherlib.snapshotCache" system property is true.
+     */
+    private static volatile boolean snapshotCaching = Boolean.getBoolean("launcherlib.snapshotCache");
+
+    /**
+     * The launcher_profiles.json file of this store
+     */
+    private final File file;
+
+    /**
+     * The currently parsed snapshot. This is {@code null} if the file was not parsed yet, or if the snapshot
+     * was invalidated.
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * The watcher of the file, or {@code null} if the file is not watched
+     */
+    private volatile LauncherFileWatcher watcher;
+
+    /**
+     * Held while the file is written by this library, and while the watcher checks the file, so that the watcher
+     * never reads a file which is being written, nor reports the saves of this library as changes
+     */
+    final Object writeLock = new Object();
+
+    /**
+     * Runs the asynchronous operations of this file in order
+     */
+    private final Executor serial = new SerialExecutor(() -> executor);
+
+    /**
+     * The binary cache of the snapshots of the file
+     */
+    private final SnapshotCache cache;
+
+    /**
+     * Initiates a new store for the given file
+     *
+     * @param file The launcher file
+     */
+    private LauncherDataStore(File file) {
+        this.file = file;
+        this.cache = new SnapshotCache(file);
+    }
+
+    /**
+     * Returns the launcher file of this store
+     *
+     * @return The launcher file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the context of the current snapshot of the file. The file is parsed if no snapshot has been
+     * parsed yet.
+     * <p>
+     * The returned context is shared with every other user of this store, hence it should be treated as read-only.
+     *
+     * @return The current context
+     */
+    public LauncherContext getContext() {
+        return getSnapshot().getContext();
+    }
+
+    /**
+     * Returns the current snapshot of the file. The file is parsed if no snapshot has been parsed yet.
+     *
+     * @return The current snapshot
+     */
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = this.snapshot.get();
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = this.snapshot.get();
+                if (snapshot == null) {
+                    LauncherEvent event = LauncherEvents.beginLoad();
+                    snapshot = read();
+                    this.snapshot.set(snapshot);
+                    completeRead(event, snapshot);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns the current snapshot of the file, without parsing it.
+     *
+     * @return The current snapshot, or {@code null} if no snapshot has been parsed yet
+     */
+    public Snapshot peekSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Returns the watcher of the file, which reloads this store when the file is changed by other programs.
+     * The watcher is started on the first invocation.
+     *
+     * @return The watcher of the file
+     */
+    public LauncherFileWatcher getWatcher() {
+        synchronized (writeLock) {
+            if (watcher == null) {
+                watcher = new LauncherFileWatcher(this);
+            }
+            return watcher;
+        }
+    }
+
+    /**
+     * Creates a patch with the given factory and writes it to the file. The {@link #getWatcher() watcher} records
+     * the written content, so that the save is not reported to its listeners as a change made by another program.
+     * <p>
+     * The patch is created under the write lock, so no other save of this library nor a reload of the watcher can
+     * change the file in the meantime. If another program changed the file while the patch was created, the
+     * patch no longer matches the file and is created again, from the new content.
+     *
+     * @param patches The factory of the patch, which reads the current content of the file
+     * @param durable Whether the file is atomically replaced (see {@link ProfilesPatch#applyAtomically()}),
+     *                rather than written in place
+     * @return The written patch
+     * @throws UncheckedIOException If the file could not be written, or if it kept being changed by another program
+     */
+    public ProfilesPatch write(Supplier<ProfilesPatch> patches, boolean durable) {
+        synchronized (writeLock) {
+            ProfilesPatch patch = patches.get();
+            for (int attempt = 1; !patch.isCurrent(); attempt++) {
+                if (attempt == MAX_PATCH_ATTEMPTS) {
+                    throw new UncheckedIOException("Unable to write the launcher file: " + file,
+                            new IOException("The file kept being changed by another program while it was saved"));
+                }
+                patch = patches.get();
+            }
+            if (durable) {
+                patch.applyAtomically();
+            } else {
+                patch.apply();
+            }
+            LauncherFileWatcher watcher = this.watcher;
+            if (watcher != null) {
+                watcher.record(FileStamp.of(file), patch.getContent());
+            }
+            return patch;
+        }
+    }
+
+    /**
+     * Runs the given task asynchronously on the {@link #setExecutor(Executor) I/O executor}. Tasks which are
+     * submitted to the same store run one at a time, in the order they were submitted.
+     *
+     * @param task Task to run
+     * @param <T>  The result of the task
+     * @return A future which is completed with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, serial);
+    }
+
+    /**
+     * Returns the executor of the asynchronous operations of this store. Tasks which are executed by it run one
+     * at a time, in order with the tasks {@link #submit(Supplier) submitted} to this store.
+     *
+     * @return The serial executor of this store
+     */
+    public Executor getSerialExecutor() {
+        return serial;
+    }
+
+    /**
+     * Re-parses the file, and replaces the current snapshot with the new one.
+     *
+     * @return The context of the new snapshot
+     */
+    public LauncherContext reload() {
+        return reloadSnapshot().getContext();
+    }
+
+    /**
+     * Re-parses the file, and replaces the current snapshot with the new one.
+     *
+     * @return The new snapshot
+     */
+    public synchronized Snapshot reloadSnapshot() {
+        LauncherEvent event = LauncherEvents.beginReload();
+        Snapshot snapshot = read();
+        this.snapshot.set(snapshot);
+        completeRead(event, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Discards the current snapshot. The file will be parsed again the next time it is requested. This should be
+     * called after the file is replaced.
+     */
+    public void invalidate() {
+        snapshot.set(null);
+    }
+
+    /**
+     * Replaces the given snapshot with a copy which has the given profiles, after they were written to the
+     * file. Every other section is shared with the given snapshot, so the file is not parsed again.
+     * <p>
+     * If the current snapshot is no longer the given one (because the file was reloaded in the meantime), the
+     * current snapshot is discarded instead.
+     *
+     * @param snapshot The snapshot the file was written from
+     * @param profiles The written profiles
+     * @return The new snapshot, or {@code null} if the current snapshot was discarded
+     */
+    public Snapshot publish(Snapshot snapshot, Map<String, LauncherProfile> profiles) {
+        Snapshot published = new Snapshot(snapshot.getContext().withProfiles(profiles), FileStamp.of(file));
+        if (this.snapshot.compareAndSet(snapshot, published)) {
+            return published;
+        }
+        invalidate();
+        return null;
+    }
+
+    /**
+     * Replaces the current snapshot with the given one
+     *
+     * @param snapshot The new snapshot
+     */
+    synchronized void replace(Snapshot snapshot) {
+        this.snapshot.set(snapshot);
+    }
+
+    /**
+     * Completes the event of a read of the file with the size and the profiles of the read snapshot
+     */
+    void completeRead(LauncherEvent event, Snapshot snapshot) {
+        if (event != LauncherEvent.NONE) {
+            event.complete(file, Math.max(0, snapshot.getStamp().getSize()), snapshot.getContext().getProfiles().size());
+        }
+    }
+
+    /**
+     * Removes this store from the shared stores, if it is still the store of its file, so that it can be garbage
+     * collected. The watcher of this store is closed, and its snapshot is discarded.
+     *
+     * @see #release(File)
+     */
+    public void release() {
+        STORES.remove(file.getPath(), this);
+        synchronized (writeLock) {
+            if (watcher != null) {
+                watcher.close();
+                watcher = null;
+            }
+        }
+        invalidate();
+    }
+
+    private Snapshot read() {
+        FileStamp stamp = FileStamp.of(file);
+        if (!snapshotCaching) {
+            return new Snapshot(LauncherFileReader.read(file), stamp);
+        }
+        ByteBuffer content = LauncherFileReader.load(file);
+        if (content == null) {
+            return new Snapshot(new LauncherContext(), stamp);
+        }
+        long hash = SnapshotCache.hash(content);
+        LauncherContext context = cache.read(stamp, hash);
+        MinecraftLauncher.getMetrics().onCacheLookup(file, context != null);
+        if (context == null) {
+            LauncherContext parsed = LauncherFileReader.read(file, content);
+            serial.execute(() -> {
+                try {
+                    byte[] encoded = cache.encode(content, stamp, hash);
+                    // A cache of a file which was changed since can never be used, and would replace the cache
+                    // another store may have written for the current content
+                    if (FileStamp.of(file).equals(stamp)) {
+                        cache.write(encoded);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // The cache is only an optimization: the file is parsed again on the next start
+                }
+            });
+            context = parsed;
+        }
+        return new Snapshot(context, stamp);
+    }
+
+    /**
+     * Returns the store of the given file, creating it if it does not exist.
+     *
+     * @param file The launcher file
+     * @return The store of the file
+     */
+    public static LauncherDataStore of(File file) {
+        return STORES.computeIfAbsent(canonicalPath(file), path -> new LauncherDataStore(new File(path)));
+    }
+
+    /**
+     * Returns the store of the given path, creating it if it does not exist.
+     *
+     * @param path Path to the launcher file
+     * @return The store of the file
+     */
+    public static LauncherDataStore of(String path) {
+        return of(new File(path));
+    }
+
+    /**
+     * Removes the store of the given file, if there is one, so that it can be garbage collected. The watcher of
+     * the store is closed, and its snapshot is discarded.
+     * <p>
+     * Users which still hold the released store keep working, but they no longer share it with the users which
+     * request the store of the file afterwards, who get a new store. A store should therefore only be released
+     * once its file is no longer used.
+     *
+     * @param file The launcher file
+     */
+    public static void release(File file) {
+        LauncherDataStore store = STORES.get(canonicalPath(file));
+        if (store != null) {
+            store.release();
+        }
+    }
+
+    /**
+     * Removes the store of the given path, if there is one, so that it can be garbage collected.
+     *
+     * @param path The path to the launcher file
+     * @see #release(File)
+     */
+    public static void release(String path) {
+        release(new File(path));
+    }
+
+    /**
+     * Returns the canonical path of the given file, which is the path of its store, without creating the store.
+     * Different paths to the same file have the same canonical path.
+     *
+     * @param path The path to the launcher file
+     * @return The canonical path, or the absolute path if it could not be resolved
+     */
+    public static String canonicalPath(String path) {
+        return canonicalPath(new File(path));
+    }
+
+    /**
+     * Sets the executor which runs the asynchronous operations of every store. The executor only provides the
+     * threads: operations on the same file still run one at a time, in order.
+     *
+     * @param executor The new executor, or {@code null} to use the default one (a pool of daemon threads)
+     * @see #newVirtualThreadExecutor()
+     */
+    public static void setExecutor(Executor executor) {
+        LauncherDataStore.executor = executor == null ? DEFAULT_EXECUTOR : executor;
+    }
+
+    /**
+     * Returns the executor which runs the asynchronous operations of every store
+     *
+     * @return The current executor
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets whether parsed snapshots are cached in binary sidecar files ("launcher_profiles.json.cache").
+     * <p>
+     * When enabled, a file whose size, modification time and content hash still match its cache is read from
+     * the cache instead of being parsed. Otherwise, the file is parsed and its cache is rewritten in the
+     * background. This is disabled by default, unless the "launcherlib.snapshotCache" system property is true.
+     * It should be set before the first launcher file is read.
+     *
+     * @param snapshotCaching Whether snapshots are cached
+     */
+    public static void setSnapshotCaching(boolean snapshotCaching) {
+        LauncherDataStore.snapshotCaching = snapshotCaching;
+    }
+
+    /**
+     * Returns whether parsed snapshots are cached in binary sidecar files
+     *
+     * @return Whether snapshots are cached
+     * @see #setSnapshotCaching(boolean)
+     */
+    public static boolean isSnapshotCaching() {
+        return snapshotCaching;
+    }
+
+    /**
+     * Creates an executor which runs every task on a new virtual thread. Virtual threads are cheap to block,
+     * which suits file I/O.
+     *
+     * @return The new executor
+     * @throws UnsupportedOperationException If the running JDK does not support virtual threads (Java 21+)
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JDK", e);
+        }
+    }
+
+    /**
+     * Returns the canonical path of the given file, so that different paths to the same file resolve
+     * to the same store.
+     *
+     * @param file File to resolve
+     * @return The canonical path, or the absolute path if it could not be resolved
+     */
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Represents a parsed state of the file
+     */
+    public static final class Snapshot {
+
+        /**
+         * The parsed launcher data
+         */
+        private final LauncherContext context;
+
+        /**
+         * The stamp of the file before it was parsed
+         */
+        private final FileStamp stamp;
+
+        Snapshot(LauncherContext context, FileStamp stamp) {
+            this.context = context;
+            this.stamp = stamp;
+        }
+
+        /**
+         * Returns the parsed launcher data
+         *
+         * @return The launcher data
+         */
+        public LauncherContext getContext() {
+            return context;
+        }
+
+        /**
+         * Returns the stamp of the file before it was parsed. If the file still has the same stamp, the
+         * snapshot is up-to-date.
+         *
+         * @return The stamp of the parsed file
+         */
+        public FileStamp getStamp() {
+            return stamp;
+        }
+    }
+
+}
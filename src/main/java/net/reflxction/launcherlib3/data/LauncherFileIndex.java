@@ -0,0 +1,239 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A structural index of the bytes of a "launcher_profiles.json" file. The index records where every top-level
+ * section and every profile entry is located in the file, without decoding any values.
+ * <p>
+ * Indexing is a single pass of a {@link LauncherJsonReader} over the (UTF-8) bytes, which skips the values and
+ * only decodes the keys, as they are needed to identify the sections.
+ *
+ * @see LauncherFileReader
+ */
+public final class LauncherFileIndex {
+
+    /**
+     * The JSON key for the profiles map in the file
+     */
+    private static final String PROFILES = "profiles";
+
+    /**
+     * The value ranges of the top-level sections, assigned to their keys
+     */
+    private final Map<String, Range> sections = new LinkedHashMap<>();
+
+    /**
+     * The entries of the profiles map, assigned to their keys
+     */
+    private final Map<String, ProfileEntry> profiles = new LinkedHashMap<>();
+
+    /**
+     * The reader which scans the indexed buffer
+     */
+    private final LauncherJsonReader reader;
+
+    /**
+     * Initiates a new index for the given buffer
+     *
+     * @param buffer Buffer to index
+     */
+    private LauncherFileIndex(ByteBuffer buffer) {
+        this.reader = new LauncherJsonReader(buffer);
+    }
+
+    /**
+     * Returns the value ranges of the top-level sections, assigned to their keys
+     *
+     * @return The sections of the file
+     */
+    public Map<String, Range> getSections() {
+        return Collections.unmodifiableMap(sections);
+    }
+
+    /**
+     * Returns the entries of the profiles map, assigned to their keys
+     *
+     * @return The profile entries of the file
+     */
+    public Map<String, ProfileEntry> getProfiles() {
+        return Collections.unmodifiableMap(profiles);
+    }
+
+    /**
+     * Indexes the given buffer. The buffer position and limit are not changed; the whole content from
+     * index 0 to the limit is indexed.
+     *
+     * @param buffer Buffer to index
+     * @return The index of the buffer
+     * @throws JsonSyntaxException If the buffer does not contain a valid JSON object, or if a profile is repeated
+     */
+    public static LauncherFileIndex of(ByteBuffer buffer) {
+        LauncherFileIndex index = new LauncherFileIndex(buffer);
+        try {
+            index.indexFile();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return index;
+    }
+
+    private void indexFile() throws IOException {
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String key = reader.nextName();
+            JsonToken token = reader.peek();
+            int start = reader.getPosition();
+            if (key.equals(PROFILES) && token == JsonToken.BEGIN_OBJECT) {
+                indexProfiles();
+            } else {
+                reader.skipValue();
+            }
+            sections.put(key, new Range(start, reader.getPosition()));
+        }
+        reader.endObject();
+    }
+
+    private void indexProfiles() throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            int entryStart = reader.getPosition();
+            String name = reader.nextName();
+            reader.peek();
+            int valueStart = reader.getPosition();
+            reader.skipValue();
+            if (profiles.put(name, new ProfileEntry(entryStart, valueStart, reader.getPosition())) != null) {
+                throw new JsonSyntaxException("duplicate key: " + name);
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Represents a range of bytes in the file
+     */
+    public static final class Range {
+
+        /**
+         * The index of the first byte
+         */
+        private final int start;
+
+        /**
+         * The index after the last byte
+         */
+        private final int end;
+
+        Range(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the index of the first byte
+         *
+         * @return The start of the range
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the index after the last byte
+         *
+         * @return The end of the range
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        /**
+         * Returns the number of bytes in this range
+         *
+         * @return The length of the range
+         */
+        public int getLength() {
+            return end - start;
+        }
+    }
+
+    /**
+     * Represents an entry of the profiles map
+     */
+    public static final class ProfileEntry {
+
+        /**
+         * The index of the opening quote of the entry key
+         */
+        private final int start;
+
+        /**
+         * The index of the first byte of the entry value
+         */
+        private final int valueStart;
+
+        /**
+         * The index after the last byte of the entry value
+         */
+        private final int end;
+
+        ProfileEntry(int start, int valueStart, int end) {
+            this.start = start;
+            this.valueStart = valueStart;
+            this.end = end;
+        }
+
+        /**
+         * Returns the index of the opening quote of the entry key
+         *
+         * @return The start of the entry
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns the index of the first byte of the entry value
+         *
+         * @return The start of the value
+         */
+        public int getValueStart() {
+            return valueStart;
+        }
+
+        /**
+         * Returns the index after the last byte of the entry value
+         *
+         * @return The end of the entry
+         */
+        public int getEnd() {
+            return end;
+        }
+    }
+
+}
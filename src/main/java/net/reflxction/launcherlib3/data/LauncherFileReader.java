@@ -0,0 +1,252 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+import net.reflxction.launcherlib3.metrics.LauncherMetrics;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the "launcher_profiles.json" file in a single streaming pass.
+ * <p>
+ * The file is tokenized with a {@link JsonReader} and bound directly into a {@link LauncherContext}, which
+ * includes the profiles map and the authentication database. No intermediate {@link JsonObject} tree is built,
+ * so the file is never held in memory more than once.
+ * <p>
+ * Files are read into a private buffer and tokenized directly from their UTF-8 bytes by a
+ * {@link LauncherJsonReader}, so that only the values which are kept are decoded, and large values (such as
+ * profile icons and access tokens) only keep a copy of their raw bytes instead of being decoded. The buffer
+ * itself is not referenced by the context, so it can be collected once the file is parsed. The files are not
+ * memory-mapped: the launcher rewrites its file in place, and a mapping of a file which is truncated by another
+ * program crashes the reads from it.
+ *
+ * @see LauncherContext
+ * @see MinecraftLauncher#GSON
+ */
+public final class LauncherFileReader {
+
+    /**
+     * The JSON key for the profiles map in the file
+     */
+    private static final String PROFILES = "profiles";
+
+    private LauncherFileReader() {
+    }
+
+    /**
+     * Reads the given launcher file into a new {@link LauncherContext}. An empty or missing file will result
+     * in an empty context.
+     *
+     * @param file File to read. Must be the launcher_profiles.json file!
+     * @return The launcher context read from the file
+     * @throws UncheckedIOException If the file could not be read
+     */
+    public static LauncherContext read(File file) {
+        ByteBuffer buffer = load(file);
+        return buffer == null ? new LauncherContext() : read(file, buffer);
+    }
+
+    /**
+     * Reads the given launcher file into a new buffer, which is not affected by later changes of the file.
+     *
+     * @param file File to load
+     * @return The content of the file, or {@code null} if the file is empty or missing
+     * @throws UncheckedIOException If the file could not be read
+     */
+    public static ByteBuffer load(File file) {
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        if (metrics == LauncherMetrics.NONE) {
+            return readContent(file);
+        }
+        long start = System.nanoTime();
+        ByteBuffer buffer = readContent(file);
+        if (buffer != null) {
+            metrics.onRead(file, buffer.limit(), System.nanoTime() - start);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer readContent(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return null;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The launcher file is too large to be read (" + size + " bytes)");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the launcher file: " + file, e);
+        }
+    }
+
+    /**
+     * Reads the given launcher content into a new {@link LauncherContext}. The content is read from index 0
+     * to the limit of the buffer, which must not be modified while it is read.
+     *
+     * @param buffer Buffer to read from, containing the UTF-8 content of the file
+     * @return The launcher context read from the buffer
+     */
+    public static LauncherContext read(ByteBuffer buffer) {
+        return readContent(new LauncherJsonReader(buffer));
+    }
+
+    /**
+     * Reads the given content of a launcher file into a new {@link LauncherContext}, and reports the parse to the
+     * {@link MinecraftLauncher#getMetrics() metrics}
+     *
+     * @param file   The launcher file, which is only used for the metrics and the events
+     * @param buffer Buffer to read from, containing the UTF-8 content of the file
+     * @return The launcher context read from the buffer
+     */
+    static LauncherContext read(File file, ByteBuffer buffer) {
+        LauncherJsonReader reader = new LauncherJsonReader(file, buffer, 0, buffer.limit());
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        if (metrics == LauncherMetrics.NONE) {
+            return readContent(reader);
+        }
+        long start = System.nanoTime();
+        LauncherContext context = readContent(reader);
+        metrics.onParse(file, reader.getTokenCount(), context.getProfiles().size(), System.nanoTime() - start);
+        return context;
+    }
+
+    /**
+     * Reads the given content of a launcher file into a new {@link LauncherContext}, reusing the given profiles
+     * instead of parsing their entries again. Only the entries of the other profiles are parsed, along with the
+     * sections outside the profiles map.
+     * <p>
+     * Neither the given buffer nor the copy the other sections are parsed from is referenced by the context:
+     * reused and new profiles only hold copies of their own undecoded values, so a reload never keeps a previous
+     * generation of the file in memory.
+     *
+     * @param file   The launcher file, which is only used for the metrics and the events
+     * @param buffer Buffer to read from, containing the UTF-8 content of the file
+     * @param index  The index of the content
+     * @param reused The profiles whose entries are known to be unchanged, assigned to their keys
+     * @return The launcher context read from the buffer
+     */
+    static LauncherContext read(File file, ByteBuffer buffer, LauncherFileIndex index, Map<String, LauncherProfile> reused) {
+        LauncherFileIndex.Range section = index.getSections().get(PROFILES);
+        if (reused.isEmpty() || section == null || buffer.get(section.getStart()) != '{') {
+            return read(file, buffer);
+        }
+        // The rest of the file is parsed with an empty profiles map in place of the entries
+        ByteBuffer rest = ByteBuffer.allocate(buffer.limit() - section.getLength() + 2);
+        ByteBuffer head = buffer.duplicate();
+        head.limit(section.getStart());
+        head.position(0);
+        rest.put(head).put((byte) '{').put((byte) '}');
+        ByteBuffer tail = buffer.duplicate();
+        tail.position(section.getEnd());
+        rest.put(tail);
+        rest.flip();
+        LauncherContext context = read(file, rest);
+
+        TypeAdapter<LauncherProfile> adapter = MinecraftLauncher.GSON.getAdapter(LauncherProfile.class);
+        Map<String, LauncherProfile> profiles = new LinkedHashMap<>();
+        for (Map.Entry<String, LauncherFileIndex.ProfileEntry> entry : index.getProfiles().entrySet()) {
+            LauncherProfile profile = reused.get(entry.getKey());
+            if (profile == null) {
+                LauncherJsonReader reader = new LauncherJsonReader(file, buffer, entry.getValue().getValueStart(), entry.getValue().getEnd());
+                try {
+                    profile = adapter.read(reader);
+                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                    throw new JsonSyntaxException(e);
+                }
+            }
+            profiles.put(entry.getKey(), profile);
+        }
+        return context.withProfiles(profiles);
+    }
+
+    private static LauncherContext readContent(LauncherJsonReader reader) {
+        try {
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return new LauncherContext();
+            }
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return read(reader);
+    }
+
+    /**
+     * Reads the given launcher content into a new {@link LauncherContext}. The reader is not closed.
+     *
+     * @param reader Reader to read from
+     * @return The launcher context read from the reader
+     */
+    public static LauncherContext read(Reader reader) {
+        return read(new JsonReader(reader instanceof BufferedReader ? reader : new BufferedReader(reader)));
+    }
+
+    private static LauncherContext read(JsonReader reader) {
+        LauncherContext context = MinecraftLauncher.GSON.fromJson(reader, LauncherContext.class);
+        return context == null ? new LauncherContext() : context;
+    }
+
+    /**
+     * Reads the given launcher file as a {@link JsonObject} tree. This should only be used when the raw
+     * content is required, as it holds the entire file in memory.
+     *
+     * @param file File to read
+     * @return The file content as a JSON tree
+     * @throws UncheckedIOException If the file could not be read
+     */
+    public static JsonObject readTree(File file) {
+        if (!file.exists()) {
+            return new JsonObject();
+        }
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JsonObject content = MinecraftLauncher.GSON.fromJson(reader, JsonObject.class);
+            return content == null ? new JsonObject() : content;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the launcher file: " + file, e);
+        }
+    }
+
+}
@@ -0,0 +1,372 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+import net.reflxction.launcherlib3.metrics.LauncherEvent;
+import net.reflxction.launcherlib3.metrics.LauncherEvents;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Watches a launcher file for changes made by other programs (such as the launcher itself), and reloads its
+ * {@link LauncherDataStore} only when the file really changed.
+ * <p>
+ * Modification events are debounced, and the file is then checked in three steps: its size and modification
+ * time, a hash of its content, and a hash of every profile entry. The file is only parsed again if the content
+ * changed, in which case the profiles whose entries did not change are reused, and only the changed entries
+ * are parsed. Listeners are notified of every profile which was added, removed or changed.
+ * <p>
+ * Saves of the store are recorded as they are written, so they are not reported as changes. The file is not
+ * checked while it is being saved.
+ *
+ * @see LauncherDataStore#getWatcher()
+ */
+public final class LauncherFileWatcher implements Closeable {
+
+    /**
+     * The store to reload
+     */
+    private final LauncherDataStore store;
+
+    /**
+     * The service watching the directory of the file
+     */
+    private final WatchService service;
+
+    /**
+     * The listeners of this watcher
+     */
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The time to wait after the last modification event before checking the file, in milliseconds
+     */
+    private volatile long debounce = 100;
+
+    /**
+     * The stamp of the file when it was last checked or written. The recorded state of the file is guarded by
+     * the write lock of the store.
+     */
+    private FileStamp stamp;
+
+    /**
+     * The hash of the content of the file when it was last checked or written
+     */
+    private long hash;
+
+    /**
+     * The hashes of the profile entries when the file was last checked or written, assigned to their keys
+     */
+    private Map<String, Long> entries;
+
+    /**
+     * Initiates a new watcher, and starts watching the file
+     *
+     * @param store The store of the file to watch
+     * @throws UncheckedIOException If the directory of the file could not be watched
+     */
+    LauncherFileWatcher(LauncherDataStore store) {
+        this.store = store;
+        record(FileStamp.of(store.getFile()), LauncherFileReader.load(store.getFile()));
+        try {
+            Path directory = store.getFile().getAbsoluteFile().getParentFile().toPath();
+            // The file may be created later, but its directory must exist to be watched
+            Files.createDirectories(directory);
+            service = FileSystems.getDefault().newWatchService();
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to watch the launcher file: " + store.getFile(), e);
+        }
+        Thread thread = new Thread(this::watch, "LauncherLib Watcher (" + store.getFile().getName() + ")");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Adds the given listener
+     *
+     * @param listener Listener to add
+     * @return This watcher instance
+     */
+    public LauncherFileWatcher addListener(Listener listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Removes the given listener
+     *
+     * @param listener Listener to remove
+     * @return This watcher instance
+     */
+    public LauncherFileWatcher removeListener(Listener listener) {
+        listeners.remove(listener);
+        return this;
+    }
+
+    /**
+     * Sets the time to wait after the last modification event before checking the file. Writers usually
+     * produce several events for a single save. Default value is 100 milliseconds.
+     *
+     * @param debounce The time to wait
+     * @param unit     The unit of the time
+     * @return This watcher instance
+     */
+    public LauncherFileWatcher setDebounce(long debounce, TimeUnit unit) {
+        this.debounce = unit.toMillis(debounce);
+        return this;
+    }
+
+    /**
+     * Stops watching the file
+     */
+    @Override
+    public void close() {
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void watch() {
+        String name = store.getFile().getName();
+        try {
+            boolean changed = false;
+            while (true) {
+                WatchKey key = changed ? service.poll(debounce, TimeUnit.MILLISECONDS) : service.take();
+                if (key == null) {
+                    changed = false;
+                    try {
+                        check();
+                    } catch (RuntimeException e) {
+                        // The file is checked again on its next change
+                        fail(e);
+                    }
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(String.valueOf(event.context()))) {
+                        changed = true;
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was closed
+        }
+    }
+
+    /**
+     * Reports the given failure of a check to the listeners
+     *
+     * @param failure The failure
+     */
+    private void fail(RuntimeException failure) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onError(failure);
+            } catch (RuntimeException ignored) {
+                // A failing listener must not stop the watcher
+            }
+        }
+    }
+
+    /**
+     * Checks whether the file really changed since it was last checked, and reloads the store if so.
+     */
+    public synchronized void check() {
+        LauncherDataStore.Snapshot previous;
+        LauncherDataStore.Snapshot snapshot;
+        Map<String, Long> previousEntries;
+        Map<String, Long> currentEntries;
+        synchronized (store.writeLock) {
+            File file = store.getFile();
+            FileStamp current = FileStamp.of(file);
+            if (current.equals(stamp)) {
+                return;
+            }
+            LauncherEvent event = LauncherEvents.beginWatchReload();
+            ByteBuffer buffer = LauncherFileReader.load(file);
+            long currentHash = hash(buffer, 0, buffer == null ? 0 : buffer.limit());
+            if (currentHash == hash) {
+                stamp = current;
+                return;
+            }
+            LauncherFileIndex index = buffer == null ? null : LauncherFileIndex.of(buffer);
+            currentEntries = hashEntries(buffer, index);
+            previousEntries = entries;
+            previous = store.peekSnapshot();
+            LauncherContext context;
+            if (buffer == null) {
+                context = new LauncherContext();
+            } else if (previous != null && previous.getStamp().equals(stamp)) {
+                // The current snapshot matches the recorded entries, so its unchanged profiles are kept
+                Map<String, LauncherProfile> reused = new HashMap<>();
+                previous.getContext().getProfiles().forEach((key, profile) -> {
+                    if (Objects.equals(previousEntries.get(key), currentEntries.get(key))) {
+                        reused.put(key, profile);
+                    }
+                });
+                context = LauncherFileReader.read(file, buffer, index, reused);
+            } else {
+                context = LauncherFileReader.read(file, buffer);
+            }
+            snapshot = new LauncherDataStore.Snapshot(context, current);
+            store.replace(snapshot);
+            store.completeRead(event, snapshot);
+            stamp = current;
+            hash = currentHash;
+            entries = currentEntries;
+        }
+
+        Map<String, LauncherProfile> before = previous == null ? Collections.emptyMap() : previous.getContext().getProfiles();
+        Map<String, LauncherProfile> after = snapshot.getContext().getProfiles();
+        for (Map.Entry<String, Long> entry : previousEntries.entrySet()) {
+            if (!currentEntries.containsKey(entry.getKey())) {
+                listeners.forEach(listener -> listener.onProfileRemoved(entry.getKey(), before.get(entry.getKey())));
+            }
+        }
+        Set<String> unchanged = new HashSet<>();
+        for (Map.Entry<String, Long> entry : currentEntries.entrySet()) {
+            String key = entry.getKey();
+            Long previousHash = previousEntries.get(key);
+            if (previousHash == null) {
+                listeners.forEach(listener -> listener.onProfileAdded(key, after.get(key)));
+            } else if (!previousHash.equals(entry.getValue())) {
+                listeners.forEach(listener -> listener.onProfileChanged(key, before.get(key), after.get(key)));
+            } else {
+                unchanged.add(key);
+            }
+        }
+        Set<String> unchangedView = Collections.unmodifiableSet(unchanged);
+        listeners.forEach(listener -> listener.onReload(snapshot, unchangedView));
+    }
+
+    /**
+     * Records the given state of the file, without notifying the listeners. This is called with the write lock
+     * of the store held, after the store wrote the file.
+     *
+     * @param stamp   The stamp of the file
+     * @param content The content of the file, or {@code null} if the file is empty or missing
+     */
+    void record(FileStamp stamp, ByteBuffer content) {
+        this.stamp = stamp;
+        this.hash = hash(content, 0, content == null ? 0 : content.limit());
+        this.entries = hashEntries(content, content == null ? null : LauncherFileIndex.of(content));
+    }
+
+    private static Map<String, Long> hashEntries(ByteBuffer buffer, LauncherFileIndex index) {
+        if (buffer == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> hashes = new HashMap<>();
+        for (Map.Entry<String, LauncherFileIndex.ProfileEntry> entry : index.getProfiles().entrySet()) {
+            hashes.put(entry.getKey(), hash(buffer, entry.getValue().getValueStart(), entry.getValue().getEnd()));
+        }
+        return hashes;
+    }
+
+    private static long hash(ByteBuffer buffer, int start, int end) {
+        CRC32 crc = new CRC32();
+        if (buffer != null) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(end);
+            slice.position(start);
+            crc.update(slice);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * A listener of the changes of a launcher file
+     */
+    public interface Listener {
+
+        /**
+         * Called when a profile was added to the file
+         *
+         * @param key     The key of the profile
+         * @param profile The added profile
+         */
+        default void onProfileAdded(String key, LauncherProfile profile) {
+        }
+
+        /**
+         * Called when a profile was removed from the file
+         *
+         * @param key     The key of the profile
+         * @param profile The removed profile, or {@code null} if it was not loaded
+         */
+        default void onProfileRemoved(String key, LauncherProfile profile) {
+        }
+
+        /**
+         * Called when a profile of the file was changed
+         *
+         * @param key      The key of the profile
+         * @param previous The previous profile, or {@code null} if it was not loaded
+         * @param profile  The new profile
+         */
+        default void onProfileChanged(String key, LauncherProfile previous, LauncherProfile profile) {
+        }
+
+        /**
+         * Called after the store was reloaded and the profile events were dispatched
+         *
+         * @param snapshot  The new snapshot of the file
+         * @param unchanged The keys of the profiles which were not changed
+         */
+        default void onReload(LauncherDataStore.Snapshot snapshot, Set<String> unchanged) {
+        }
+
+        /**
+         * Called when the watcher failed to check or reload the file, for example because it could not be read
+         * or was malformed, or because a listener threw. The watcher keeps watching, and checks the file again
+         * on its next change. Exceptions thrown by this method are ignored.
+         *
+         * @param failure The failure
+         */
+        default void onError(RuntimeException failure) {
+        }
+    }
+
+}
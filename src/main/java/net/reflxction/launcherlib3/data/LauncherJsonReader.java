@@ -0,0 +1,746 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import net.reflxction.launcherlib3.profile.ProfileIcon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A {@link JsonReader} which tokenizes the UTF-8 content of a launcher file directly from its buffer, without
+ * decoding it into characters first.
+ * <p>
+ * Strings are only created for the names and values which are read: skipped values are never decoded, and
+ * adapters may copy the raw bytes of large values instead of decoding them (see {@link #nextIcon()},
+ * {@link #nextMappedString()} and {@link #nextSection(TypeAdapter)}). Repeated names are decoded once.
+ * <p>
+ * The reader only uses its own state, so it works with the adapters of this library, which only use the public
+ * API of {@link JsonReader}. Gson's own map adapter relies on the internal state of text readers, hence it cannot
+ * be used with this reader.
+ *
+ * @see ProfileIcon.Adapter
+ * @see MappedString.Adapter
+ * @see LazySection.Factory
+ */
+public class LauncherJsonReader extends JsonReader {
+
+    /**
+     * A reader which fails on any use. The text reader of the parent class is never used.
+     */
+    private static final Reader UNREADABLE = new Reader() {
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int DANGLING_NAME = 3;
+    private static final int NONEMPTY_OBJECT = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    /**
+     * The maximum length of the names which are decoded once
+     */
+    private static final int MAX_CACHED_NAME = 32;
+
+    /**
+     * The content of the launcher file
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The launcher file the content was read from, or {@code null} if it is unknown
+     */
+    private final File file;
+
+    /**
+     * The index after the last byte of the file
+     */
+    private final int limit;
+
+    /**
+     * The scopes of the nested objects and arrays
+     */
+    private int[] stack = new int[32];
+
+    /**
+     * The number of scopes in the stack
+     */
+    private int depth = 1;
+
+    /**
+     * The next token, or {@code null} if it was not peeked yet
+     */
+    private JsonToken peeked;
+
+    /**
+     * The current position in the file. After a token is peeked, this is the index of its first byte.
+     */
+    private int position;
+
+    /**
+     * The number of tokens which were peeked
+     */
+    private long tokens;
+
+    /**
+     * The decoded names, in slots of the hash of their bytes
+     */
+    private final String[] names = new String[256];
+
+    /**
+     * A buffer for the bytes of the decoded strings
+     */
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Initiates a new reader over the given content of a launcher file. The content is read from index 0 to the
+     * limit of the buffer, which must not be modified while it is read.
+     *
+     * @param buffer The file content
+     */
+    public LauncherJsonReader(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    /**
+     * Initiates a new reader over a single value of the given file content. Positions reported by it, such as
+     * the ones in its path and errors, are still relative to the start of the file.
+     *
+     * @param buffer The file content
+     * @param start  The index of the first byte of the value
+     * @param end    The index after the last byte of the value
+     */
+    public LauncherJsonReader(ByteBuffer buffer, int start, int end) {
+        this(null, buffer, start, end);
+    }
+
+    /**
+     * Initiates a new reader over a single value of the given content of a launcher file, whose lazy sections
+     * report the file in their
+     * {@link net.reflxction.launcherlib3.metrics.LauncherEvents#beginParseSection() events}
+     *
+     * @param file   The launcher file the content was read from, or {@code null} if it is unknown
+     * @param buffer The file content
+     * @param start  The index of the first byte of the value
+     * @param end    The index after the last byte of the value
+     */
+    LauncherJsonReader(File file, ByteBuffer buffer, int start, int end) {
+        super(UNREADABLE);
+        if (start < 0 || start > end || end > buffer.limit()) {
+            throw new IndexOutOfBoundsException("Invalid range [" + start + ", " + end + ") of " + buffer.limit() + " bytes");
+        }
+        this.buffer = buffer;
+        this.file = file;
+        this.position = start;
+        this.limit = end;
+        stack[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Returns the next value in the file, which must be a string, as an icon holding a copy of its raw bytes,
+     * and moves past it
+     *
+     * @return The undecoded icon
+     * @throws IllegalStateException If the next value is not a string
+     */
+    public ProfileIcon nextIcon() throws IOException {
+        int start = nextStringRange();
+        return ProfileIcon.mapped(buffer, start, position - 1 - start);
+    }
+
+    /**
+     * Returns the next value in the file, which must be a string, as a string holding a copy of its raw bytes,
+     * and moves past it
+     *
+     * @return The undecoded string
+     * @throws IllegalStateException If the next value is not a string
+     */
+    public MappedString nextMappedString() throws IOException {
+        int start = nextStringRange();
+        return MappedString.mapped(buffer, start, position - 1 - start);
+    }
+
+    /**
+     * Returns the next value in the file as a section holding a copy of its raw bytes, which is only deserialized
+     * with the given adapter when it is requested, and moves past it. The value is not validated beyond the
+     * nesting of its brackets.
+     *
+     * @param adapter The adapter of the value
+     * @param <T>     The type of the value
+     * @return The lazy section of the value
+     * @throws IllegalStateException If the next token is not a value
+     */
+    public <T> LazySection<T> nextSection(TypeAdapter<T> adapter) throws IOException {
+        JsonToken token = peek();
+        if (token == JsonToken.NAME || token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY
+                || token == JsonToken.END_DOCUMENT) {
+            throw new IllegalStateException("Expected a value but was " + token + locationString());
+        }
+        int start = position;
+        skipValue();
+        return LazySection.mapped(file, buffer, start, position, adapter);
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+        position++;
+        push(EMPTY_OBJECT);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+        position++;
+        depth--;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+        position++;
+        push(EMPTY_ARRAY);
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+        position++;
+        depth--;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        JsonToken token = peek();
+        return token != JsonToken.END_OBJECT && token != JsonToken.END_ARRAY && token != JsonToken.END_DOCUMENT;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        if (peeked == null) {
+            peeked = doPeek();
+            tokens++;
+        }
+        return peeked;
+    }
+
+    /**
+     * Returns the current position in the file. After a token is peeked, this is the index of its first byte,
+     * and after a value is read or skipped, this is the index after its last byte.
+     *
+     * @return The current position
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the number of tokens which were read so far. Skipped values count as a single token.
+     *
+     * @return The number of tokens
+     */
+    public long getTokenCount() {
+        return tokens;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        expect(JsonToken.NAME);
+        int start = position + 1;
+        boolean escaped = skipString();
+        int length = position - 1 - start;
+        if (escaped || length > MAX_CACHED_NAME) {
+            return decodeString(start, length, escaped);
+        }
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int slot = (hash ^ hash >>> 8) & (names.length - 1);
+        String name = names[slot];
+        if (name == null || !matches(name, start, length)) {
+            name = decodeString(start, length, false);
+            names[slot] = name;
+        }
+        return name;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        JsonToken token = peek();
+        if (token == JsonToken.NUMBER) {
+            int start = position;
+            skipNumber();
+            peeked = null;
+            return decodeString(start, position - start, false);
+        }
+        expect(JsonToken.STRING);
+        int start = position + 1;
+        boolean escaped = skipString();
+        return decodeString(start, position - 1 - start, escaped);
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        expect(JsonToken.BOOLEAN);
+        boolean value = buffer.get(position) == 't';
+        expectLiteral(value ? "true" : "false");
+        return value;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        expect(JsonToken.NULL);
+        expectLiteral("null");
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        return Double.parseDouble(nextNumber());
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        String number = nextNumber();
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            double value = Double.parseDouble(number);
+            long result = (long) value;
+            if (result != value) {
+                throw new NumberFormatException("Expected a long but was " + number + locationString());
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        String number = nextNumber();
+        long value;
+        try {
+            value = Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            double parsed = Double.parseDouble(number);
+            value = (long) parsed;
+            if (value != parsed) {
+                throw new NumberFormatException("Expected an int but was " + number + locationString());
+            }
+        }
+        if ((int) value != value) {
+            throw new NumberFormatException("Expected an int but was " + number + locationString());
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        JsonToken token = peek();
+        peeked = null;
+        switch (token) {
+            case NAME:
+            case STRING:
+                skipString();
+                return;
+            case NUMBER:
+                skipNumber();
+                return;
+            case BOOLEAN:
+                expectLiteral(buffer.get(position) == 't' ? "true" : "false");
+                return;
+            case NULL:
+                expectLiteral("null");
+                return;
+            case BEGIN_OBJECT:
+            case BEGIN_ARRAY: {
+                int nesting = 0;
+                do {
+                    byte b = next();
+                    if (b == '"') {
+                        position--;
+                        skipString();
+                    } else if (b == '{' || b == '[') {
+                        nesting++;
+                    } else if (b == '}' || b == ']') {
+                        nesting--;
+                    }
+                } while (nesting > 0);
+                return;
+            }
+            default:
+                // Closing tokens and the end of the document are not skipped
+                peeked = token;
+        }
+    }
+
+    @Override
+    public void close() {
+        peeked = null;
+        depth = 0;
+    }
+
+    @Override
+    public String getPath() {
+        return "$ (at byte " + position + ")";
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + locationString();
+    }
+
+    private JsonToken doPeek() throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("JsonReader is closed");
+        }
+        int scope = stack[depth - 1];
+        switch (scope) {
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT: {
+                byte b = nextNonWhitespace();
+                if (b == '}') {
+                    return JsonToken.END_OBJECT;
+                }
+                if (scope == NONEMPTY_OBJECT) {
+                    if (b != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    position++;
+                    b = nextNonWhitespace();
+                }
+                if (b != '"') {
+                    throw syntaxError("Expected a name");
+                }
+                stack[depth - 1] = DANGLING_NAME;
+                return JsonToken.NAME;
+            }
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':'");
+                }
+                position++;
+                stack[depth - 1] = NONEMPTY_OBJECT;
+                break;
+            case EMPTY_ARRAY:
+            case NONEMPTY_ARRAY: {
+                byte b = nextNonWhitespace();
+                if (b == ']') {
+                    return JsonToken.END_ARRAY;
+                }
+                if (scope == NONEMPTY_ARRAY) {
+                    if (b != ',') {
+                        throw syntaxError("Unterminated array");
+                    }
+                    position++;
+                }
+                stack[depth - 1] = NONEMPTY_ARRAY;
+                break;
+            }
+            case EMPTY_DOCUMENT:
+                stack[depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                if (position < limit && nextNonWhitespace() != -1) {
+                    throw syntaxError("Expected the end of the document");
+                }
+                return JsonToken.END_DOCUMENT;
+        }
+        byte b = nextNonWhitespace();
+        switch (b) {
+            case '{':
+                return JsonToken.BEGIN_OBJECT;
+            case '[':
+                return JsonToken.BEGIN_ARRAY;
+            case '"':
+                return JsonToken.STRING;
+            case 't':
+            case 'f':
+                return JsonToken.BOOLEAN;
+            case 'n':
+                return JsonToken.NULL;
+            default:
+                if (b == '-' || (b >= '0' && b <= '9')) {
+                    return JsonToken.NUMBER;
+                }
+                if (b == -1 && stack[depth - 1] == NONEMPTY_DOCUMENT) {
+                    return JsonToken.END_DOCUMENT;
+                }
+                throw syntaxError("Expected a value");
+        }
+    }
+
+    /**
+     * Moves past the whitespace at the current position
+     *
+     * @return The next byte, or -1 if the end of the file was reached
+     */
+    private byte nextNonWhitespace() {
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private void expect(JsonToken token) throws IOException {
+        JsonToken actual = peek();
+        if (actual != token) {
+            throw new IllegalStateException("Expected " + token + " but was " + actual + locationString());
+        }
+        peeked = null;
+    }
+
+    private void expectLiteral(String literal) throws IOException {
+        if (position + literal.length() > limit) {
+            throw syntaxError("Expected " + literal);
+        }
+        for (int i = 0; i < literal.length(); i++) {
+            if (buffer.get(position + i) != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+        position += literal.length();
+    }
+
+    /**
+     * Moves past the next string value
+     *
+     * @return The index of the first byte of the string content
+     */
+    private int nextStringRange() throws IOException {
+        expect(JsonToken.STRING);
+        int start = position + 1;
+        skipString();
+        return start;
+    }
+
+    /**
+     * Moves past the string at the current position
+     *
+     * @return Whether the string contains escape sequences
+     */
+    private boolean skipString() throws IOException {
+        ByteBuffer buffer = this.buffer;
+        int limit = this.limit;
+        int position = this.position + 1;
+        boolean escaped = false;
+        while (position < limit) {
+            byte b = buffer.get(position++);
+            if (b == '"') {
+                this.position = position;
+                return escaped;
+            }
+            if (b == '\\') {
+                escaped = true;
+                position++;
+            }
+        }
+        this.position = limit;
+        throw syntaxError("Unterminated string");
+    }
+
+    private void skipNumber() {
+        while (position < limit) {
+            byte b = buffer.get(position);
+            if ((b < '0' || b > '9') && b != '-' && b != '+' && b != '.' && b != 'e' && b != 'E') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    private String nextNumber() throws IOException {
+        JsonToken token = peek();
+        if (token == JsonToken.STRING) {
+            return nextString();
+        }
+        if (token != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected " + JsonToken.NUMBER + " but was " + token + locationString());
+        }
+        int start = position;
+        skipNumber();
+        peeked = null;
+        return decodeString(start, position - start, false);
+    }
+
+    private byte next() throws IOException {
+        if (position >= limit) {
+            throw syntaxError("Unexpected end of the file");
+        }
+        return buffer.get(position++);
+    }
+
+    private boolean matches(String name, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decodeString(int start, int length, boolean escaped) {
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(start);
+            slice.get(scratch, 0, length);
+            value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return escaped ? unescape(value) : value;
+    }
+
+    /**
+     * Decodes the content of a JSON string of the given buffer, and resolves its escape sequences. The buffer
+     * position is not changed.
+     *
+     * @param buffer The buffer containing the string
+     * @param start  The index of the first byte of the string content, after the opening quote
+     * @param length The number of bytes of the string content, without the quotes
+     * @return The decoded string
+     * @throws JsonSyntaxException If an escape sequence of the string is malformed
+     */
+    public static String decodeString(ByteBuffer buffer, int start, int length) {
+        boolean escaped = false;
+        for (int i = start; i < start + length; i++) {
+            if (buffer.get(i) == '\\') {
+                escaped = true;
+                break;
+            }
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.get(bytes);
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        return escaped ? unescape(value) : value;
+    }
+
+    /**
+     * Resolves the JSON escape sequences of the given string content
+     *
+     * @param value String content to unescape
+     * @return The unescaped string
+     * @throws JsonSyntaxException If a unicode escape sequence is malformed
+     */
+    private static String unescape(String value) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                builder.append(c);
+                continue;
+            }
+            char escape = value.charAt(++i);
+            switch (escape) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(unicodeEscape(value, i + 1));
+                    i += 4;
+                    break;
+                default:
+                    builder.append(escape);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Decodes the four hexadecimal digits of a unicode escape sequence
+     *
+     * @param value String content containing the escape sequence
+     * @param start The index of the first digit
+     * @return The escaped character
+     * @throws JsonSyntaxException If the escape sequence does not have four hexadecimal digits
+     */
+    private static char unicodeEscape(String value, int start) {
+        if (start + 4 > value.length()) {
+            throw new JsonSyntaxException(new MalformedJsonException("Unterminated escape sequence in string: "
+                    + value));
+        }
+        int result = 0;
+        for (int i = start; i < start + 4; i++) {
+            char c = value.charAt(i);
+            int digit = c < 128 ? Character.digit(c, 16) : -1;
+            if (digit < 0) {
+                throw new JsonSyntaxException(new MalformedJsonException("Invalid escape sequence \\u"
+                        + value.substring(start, start + 4) + " in string: " + value));
+            }
+            result = result << 4 | digit;
+        }
+        return (char) result;
+    }
+
+    private void push(int scope) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = scope;
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException(message + locationString());
+    }
+
+    private String locationString() {
+        return " at byte " + position;
+    }
+
+}
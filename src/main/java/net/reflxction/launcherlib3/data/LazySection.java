@@ -0,0 +1,307 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.reflxction.launcherlib3.metrics.LauncherEvent;
+import net.reflxction.launcherlib3.metrics.LauncherEvents;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A section of the launcher file which keeps the raw bytes it was read from, and is only deserialized when it is
+ * requested. Once deserialized, the value is kept in memory and the raw bytes are dropped.
+ * <p>
+ * A section is deserialized at most once, by the first thread which requests it. Other threads requesting it
+ * at the same time wait for that value. Until then, the section only costs its bytes: as its content is not
+ * read, syntax errors in it are only reported when it is requested.
+ *
+ * @param <T> The type of the section value
+ * @implNote Like {@link MappedString mapped strings}, a section only keeps a copy of its own bytes, not the
+ * content of the file it was read from, so it deserializes the content it was read with even if the file is
+ * changed or truncated afterwards.
+ */
+public final class LazySection<T> {
+
+    /**
+     * The section value, or {@code null} if it is not deserialized yet
+     */
+    private volatile T value;
+
+    /**
+     * The raw bytes of the section, or {@code null} if the section is deserialized
+     */
+    private volatile byte[] content;
+
+    /**
+     * The adapter which deserializes the section, or {@code null} if the section is deserialized
+     */
+    private TypeAdapter<T> adapter;
+
+    /**
+     * The launcher file the section was read from, or {@code null} if it is unknown
+     */
+    private final File file;
+
+    private LazySection(T value, File file, byte[] content, TypeAdapter<T> adapter) {
+        this.value = value;
+        this.file = file;
+        this.content = content;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Returns the section value, deserializing it if it was not deserialized yet
+     *
+     * @return The section value
+     * @throws JsonSyntaxException If the section is malformed
+     */
+    public T get() {
+        if (content != null) {
+            load();
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether this section is deserialized, rather than held as raw bytes
+     *
+     * @return Whether the section is deserialized
+     */
+    public boolean isLoaded() {
+        return content == null;
+    }
+
+    /**
+     * Returns the number of raw bytes this section holds
+     *
+     * @return The length of the section, or 0 if the section is deserialized
+     */
+    public int getLength() {
+        byte[] content = this.content;
+        return content == null ? 0 : content.length;
+    }
+
+    /**
+     * Deserializes this section, and drops its raw bytes
+     *
+     * @return This section instance
+     * @throws JsonSyntaxException If the section is malformed
+     */
+    public synchronized LazySection<T> load() {
+        byte[] content = this.content;
+        if (content != null) {
+            LauncherEvent event = LauncherEvents.beginParseSection();
+            try {
+                LauncherJsonReader reader = new LauncherJsonReader(file, ByteBuffer.wrap(content), 0, content.length);
+                T value = adapter.read(reader);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonSyntaxException("Unexpected content after the section at " + reader.getPath());
+                }
+                this.value = value;
+            } catch (IOException | IllegalStateException | NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+            this.content = null;
+            this.adapter = null;
+            event.complete(file, content.length, 0);
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        byte[] content = this.content;
+        return content == null ? String.valueOf(value) : "LazySection[" + content.length + " bytes]";
+    }
+
+    /**
+     * Creates a deserialized section
+     *
+     * @param value The section value
+     * @param <T>   The type of the section value
+     * @return The section, or {@code null} if the value is {@code null}
+     */
+    public static <T> LazySection<T> of(T value) {
+        return value == null ? null : new LazySection<>(value, null, null, null);
+    }
+
+    /**
+     * Creates a section from a copy of the given range of the content of a launcher file. The range must contain
+     * exactly one JSON value. The content is not referenced by the section.
+     *
+     * @param source  The file content
+     * @param start   The index of the first byte of the section
+     * @param end     The index after the last byte of the section
+     * @param adapter The adapter which deserializes the section
+     * @param <T>     The type of the section value
+     * @return The section
+     */
+    public static <T> LazySection<T> mapped(ByteBuffer source, int start, int end, TypeAdapter<T> adapter) {
+        return mapped(null, source, start, end, adapter);
+    }
+
+    /**
+     * Creates a section from a copy of the given range of the content of the given launcher file
+     *
+     * @param file    The launcher file the content was read from, or {@code null} if it is unknown
+     * @param source  The file content
+     * @param start   The index of the first byte of the section
+     * @param end     The index after the last byte of the section
+     * @param adapter The adapter which deserializes the section
+     * @param <T>     The type of the section value
+     * @return The section
+     * @see #mapped(ByteBuffer, int, int, TypeAdapter)
+     */
+    static <T> LazySection<T> mapped(File file, ByteBuffer source, int start, int end, TypeAdapter<T> adapter) {
+        byte[] content = new byte[end - start];
+        ByteBuffer slice = source.duplicate();
+        slice.position(start);
+        slice.get(content);
+        return new LazySection<>(null, file, content, adapter);
+    }
+
+    /**
+     * Returns the value of the given section
+     *
+     * @param section The section
+     * @param <T>     The type of the section value
+     * @return The value, or {@code null} if the section is {@code null}
+     */
+    public static <T> T valueOf(LazySection<T> section) {
+        return section == null ? null : section.get();
+    }
+
+    /**
+     * The Gson adapter factory of lazy sections. Sections are written as their value, and are kept as raw bytes
+     * instead of being read when the reader is a {@link LauncherJsonReader}, or a {@link BinaryJsonReader} over a
+     * raw value.
+     * <p>
+     * Maps with string keys are read by this factory like the generated adapters read them, since Gson's own map
+     * adapter cannot be used with the readers of this library.
+     */
+    public static final class Factory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != LazySection.class) {
+                return null;
+            }
+            Type valueType = type.getType() instanceof ParameterizedType
+                    ? ((ParameterizedType) type.getType()).getActualTypeArguments()[0] : Object.class;
+            return (TypeAdapter<T>) new Adapter<>(delegate(gson, valueType));
+        }
+
+        private static TypeAdapter<?> delegate(Gson gson, Type valueType) {
+            if (valueType instanceof ParameterizedType) {
+                ParameterizedType map = (ParameterizedType) valueType;
+                if (map.getRawType() == Map.class && map.getActualTypeArguments()[0] == String.class) {
+                    return new MapAdapter<>(gson.getAdapter(TypeToken.get(map.getActualTypeArguments()[1])));
+                }
+            }
+            return gson.getAdapter(TypeToken.get(valueType));
+        }
+    }
+
+    private static final class Adapter<T> extends TypeAdapter<LazySection<T>> {
+
+        private final TypeAdapter<T> delegate;
+
+        private Adapter(TypeAdapter<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter out, LazySection<T> value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                delegate.write(out, value.get());
+            }
+        }
+
+        @Override
+        public LazySection<T> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (in instanceof LauncherJsonReader) {
+                return ((LauncherJsonReader) in).nextSection(delegate);
+            }
+            if (in instanceof BinaryJsonReader) {
+                return ((BinaryJsonReader) in).nextSection(delegate);
+            }
+            return of(delegate.read(in));
+        }
+    }
+
+    private static final class MapAdapter<V> extends TypeAdapter<Map<String, V>> {
+
+        private final TypeAdapter<V> values;
+
+        private MapAdapter(TypeAdapter<V> values) {
+            this.values = values;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<String, V> value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Map.Entry<String, V> entry : value.entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                values.write(out, entry.getValue());
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Map<String, V> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Map<String, V> map = new LinkedHashMap<>();
+            in.beginObject();
+            while (in.hasNext()) {
+                String key = in.nextName();
+                if (map.put(key, values.read(in)) != null) {
+                    throw new JsonSyntaxException("duplicate key: " + key);
+                }
+            }
+            in.endObject();
+            return map;
+        }
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A string value which keeps the raw bytes it was read from in a launcher file, and is only decoded when it is
+ * requested. Once decoded, the value is kept in memory and the raw bytes are dropped.
+ * <p>
+ * This is used for values which are large or rarely read, such as access tokens.
+ *
+ * @implNote A string only keeps a copy of its own bytes, not the content of the file it was read from, so it
+ * keeps decoding the value it was read with even if the file is changed or truncated afterwards.
+ */
+public final class MappedString {
+
+    /**
+     * The string value, or {@code null} if it is not decoded yet
+     */
+    private volatile String value;
+
+    /**
+     * The raw UTF-8 bytes of the JSON string, without the quotes, or {@code null} if the string is decoded
+     */
+    private volatile byte[] content;
+
+    private MappedString(String value, byte[] content) {
+        this.value = value;
+        this.content = content;
+    }
+
+    /**
+     * Returns the string value, decoding it if it was not decoded yet
+     *
+     * @return The string value
+     */
+    public String getValue() {
+        load();
+        return value;
+    }
+
+    /**
+     * Returns whether this string is decoded, rather than held as raw bytes
+     *
+     * @return Whether the string is decoded
+     */
+    public boolean isLoaded() {
+        return content == null;
+    }
+
+    /**
+     * Decodes this string, and drops its raw bytes
+     *
+     * @return This string instance
+     */
+    public synchronized MappedString load() {
+        byte[] content = this.content;
+        if (content != null) {
+            value = LauncherJsonReader.decodeString(ByteBuffer.wrap(content), 0, content.length);
+            this.content = null;
+        }
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return getValue();
+    }
+
+    /**
+     * Creates a decoded string
+     *
+     * @param value The string value
+     * @return The string, or {@code null} if the value is {@code null}
+     */
+    public static MappedString of(String value) {
+        return value == null ? null : new MappedString(value, null);
+    }
+
+    /**
+     * Creates a string from a copy of the given range of the content of a launcher file. The range must contain
+     * the content of the JSON string, without the quotes. The content is not referenced by the string.
+     *
+     * @param source The file content
+     * @param offset The index of the first byte of the string
+     * @param length The number of bytes of the string
+     * @return The string
+     */
+    public static MappedString mapped(ByteBuffer source, int offset, int length) {
+        byte[] content = new byte[length];
+        ByteBuffer slice = source.duplicate();
+        slice.position(offset);
+        slice.get(content);
+        return new MappedString(null, content);
+    }
+
+    /**
+     * Returns the value of the given string
+     *
+     * @param string The string
+     * @return The value, or {@code null} if the string is {@code null}
+     */
+    public static String valueOf(MappedString string) {
+        return string == null ? null : string.getValue();
+    }
+
+    /**
+     * The Gson adapter of mapped strings. Strings are written as plain strings, and are kept as raw bytes
+     * instead of being decoded when the reader is a {@link LauncherJsonReader}.
+     */
+    public static final class Adapter extends TypeAdapter<MappedString> {
+
+        @Override
+        public void write(JsonWriter out, MappedString value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.value(value.getValue());
+            }
+        }
+
+        @Override
+        public MappedString read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.STRING && in instanceof LauncherJsonReader) {
+                return ((LauncherJsonReader) in).nextMappedString();
+            }
+            return of(in.nextString());
+        }
+    }
+
+}
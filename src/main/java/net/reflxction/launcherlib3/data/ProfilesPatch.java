@@ -0,0 +1,481 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.JsonObject;
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.metrics.LauncherMetrics;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * An incremental update of the profiles map of a launcher file.
+ * <p>
+ * Only the profiles which were changed are encoded. Every other byte of the new content (the other sections, and
+ * the entries of the unchanged profiles) is copied from the existing file, and the patch only covers the content
+ * starting from the first byte that actually changes. Saving a single profile at the end of a large file
+ * therefore only writes a few kilobytes.
+ *
+ * @see LauncherFileIndex
+ * @see net.reflxction.launcherlib3.profile.ProfileManager#save()
+ */
+public final class ProfilesPatch {
+
+    /**
+     * The JSON key for the profiles map in the file
+     */
+    private static final String PROFILES = "profiles";
+
+    /**
+     * The whitespace used before the profile entries if it cannot be taken from the file
+     */
+    private static final String DEFAULT_LEADING = "\n    ";
+
+    /**
+     * The whitespace used after the profile entries if it cannot be taken from the file
+     */
+    private static final String DEFAULT_TRAILING = "\n  ";
+
+    /**
+     * The file to patch
+     */
+    private final File file;
+
+    /**
+     * The index of the first byte which is changed by this patch
+     */
+    private final int offset;
+
+    /**
+     * The new content of the file, starting from {@link #offset}
+     */
+    private final byte[] content;
+
+    /**
+     * The existing content of the file, whose bytes before {@link #offset} are kept, or {@code null} if the
+     * whole file is rewritten
+     */
+    private final ByteBuffer source;
+
+    /**
+     * The stamp of the file when its content was read to create this patch
+     */
+    private final FileStamp stamp;
+
+    private ProfilesPatch(File file, int offset, byte[] content, ByteBuffer source, FileStamp stamp) {
+        this.file = file;
+        this.offset = offset;
+        this.content = content;
+        this.source = source;
+        this.stamp = stamp;
+    }
+
+    /**
+     * Returns the index of the first byte which is changed by this patch. Every byte before it is left untouched.
+     *
+     * @return The offset of the patch
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns the number of bytes this patch writes
+     *
+     * @return The written bytes
+     */
+    public int getLength() {
+        return content.length;
+    }
+
+    /**
+     * Returns the stamp the file had when its content was read to create this patch
+     *
+     * @return The stamp of the patched content
+     */
+    public FileStamp getSourceStamp() {
+        return stamp;
+    }
+
+    /**
+     * Returns whether the file still has the stamp it had when this patch was created. A patch must only be
+     * written while it is current: the bytes it keeps and the offset it writes at are those of the content it
+     * was created from, so writing it over other content would corrupt the file.
+     *
+     * @return Whether the file was not changed since this patch was created
+     */
+    public boolean isCurrent() {
+        return stamp.equals(FileStamp.of(file));
+    }
+
+    /**
+     * Returns the whole content of the file once this patch is written: the kept bytes of the existing file,
+     * followed by the new bytes
+     *
+     * @return A new buffer containing the patched content
+     */
+    ByteBuffer getContent() {
+        ByteBuffer buffer = ByteBuffer.allocate(offset + content.length);
+        if (offset > 0) {
+            ByteBuffer kept = source.duplicate();
+            kept.limit(offset);
+            kept.position(0);
+            buffer.put(kept);
+        }
+        buffer.put(content);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes this patch to the file, and truncates whatever remains after the new content.
+     *
+     * @throws UncheckedIOException If the file could not be written
+     */
+    public void apply() {
+        try {
+            createDirectory(file.toPath().toAbsolutePath().getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the launcher file: " + file, e);
+        }
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        long start = metrics == LauncherMetrics.NONE ? 0 : System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.truncate(position);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write the launcher file: " + file, e);
+        }
+        if (metrics != LauncherMetrics.NONE) {
+            metrics.onWrite(file, content.length, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes the patched content to a temporary file next to the file, flushes it to the disk and atomically
+     * replaces the file with it. If the process crashes at any point, the file is either left as it was or
+     * fully replaced.
+     * <p>
+     * The bytes before the {@link #getOffset() offset} are written from the content this patch was created from,
+     * not copied from the file, so the new file is consistent even if the file was changed in the meantime.
+     *
+     * @throws UncheckedIOException If the file could not be written
+     */
+    public void applyAtomically() {
+        Path target = file.toPath().toAbsolutePath();
+        Path directory = target.getParent();
+        Path temp = null;
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        long start = metrics == LauncherMetrics.NONE ? 0 : System.nanoTime();
+        long syncNanos = 0;
+        try {
+            createDirectory(directory);
+            temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = getContent();
+                long position = 0;
+                while (buffer.hasRemaining()) {
+                    position += out.write(buffer, position);
+                }
+                if (metrics != LauncherMetrics.NONE) {
+                    syncNanos = System.nanoTime();
+                    metrics.onWrite(file, position, syncNanos - start);
+                }
+                out.force(true);
+            }
+            copyPermissions(target, temp);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(directory);
+            if (metrics != LauncherMetrics.NONE) {
+                metrics.onSync(file, System.nanoTime() - syncNanos);
+            }
+        } catch (IOException e) {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException("Unable to write the launcher file: " + file, e);
+        }
+    }
+
+    /**
+     * Creates the directory of the file if it does not exist yet, which is the case when the working directory
+     * was only resolved and the file is saved for the first time.
+     *
+     * @param directory Directory to create
+     */
+    private static void createDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            Files.createDirectories(directory);
+        }
+    }
+
+    /**
+     * Gives the temporary file the POSIX permissions of the file it replaces, as temporary files are only
+     * readable by their owner.
+     *
+     * @param target The replaced file
+     * @param temp   The temporary file
+     */
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+        if (view != null && Files.exists(target)) {
+            Files.setPosixFilePermissions(temp, view.readAttributes().permissions());
+        }
+    }
+
+    /**
+     * Flushes the given directory to the disk, so that a rename inside it is durable. This is not supported
+     * on every platform, in which case it is silently skipped.
+     *
+     * @param directory Directory to flush
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Creates a patch which sets the profiles map of the given file to the given profiles.
+     * <p>
+     * The patch is computed from the content the file has now, and must be written before the file is changed
+     * by anything else: it should be created under the write lock of the {@link LauncherDataStore} of the file,
+     * which also checks that it is still {@link #isCurrent() current} (see
+     * {@link LauncherDataStore#write(java.util.function.Supplier, boolean)}).
+     *
+     * @param file      The launcher file
+     * @param profiles  The new profiles, assigned to their keys
+     * @param baseline  The stamp of the file the unchanged profiles were read from. Entries are only copied from
+     *                  the file if it still has this stamp.
+     * @param unchanged A predicate which tests whether the profile of a key is unchanged since it was read
+     *                  from the file. The entries of unchanged profiles are copied from the file as they are.
+     * @return The patch
+     * @throws UncheckedIOException If the file could not be read
+     */
+    public static ProfilesPatch create(File file, Map<String, LauncherProfile> profiles, FileStamp baseline,
+                                       Predicate<String> unchanged) {
+        FileStamp stamp = FileStamp.of(file);
+        ByteBuffer buffer = LauncherFileReader.load(file);
+        if (buffer == null) {
+            return rewrite(file, stamp, new JsonObject(), profiles);
+        }
+        boolean upToDate = stamp.equals(baseline);
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        long start = metrics == LauncherMetrics.NONE ? 0 : System.nanoTime();
+        LauncherFileIndex index = LauncherFileIndex.of(buffer);
+        LauncherFileIndex.Range section = index.getSections().get(PROFILES);
+        if (section == null || buffer.get(section.getStart()) != '{') {
+            JsonObject content = MinecraftLauncher.GSON.fromJson(new InputStreamReader(
+                    new ByteBufferInputStream(buffer), StandardCharsets.UTF_8), JsonObject.class);
+            if (metrics != LauncherMetrics.NONE) {
+                metrics.onIndex(file, 0, System.nanoTime() - start);
+            }
+            return rewrite(file, stamp, content == null ? new JsonObject() : content, profiles);
+        }
+        if (metrics != LauncherMetrics.NONE) {
+            metrics.onIndex(file, index.getProfiles().size(), System.nanoTime() - start);
+        }
+
+        Map<String, LauncherFileIndex.ProfileEntry> entries = index.getProfiles();
+        String leading = DEFAULT_LEADING;
+        String trailing = DEFAULT_TRAILING;
+        if (!entries.isEmpty()) {
+            int first = Integer.MAX_VALUE, last = 0;
+            for (LauncherFileIndex.ProfileEntry entry : entries.values()) {
+                first = Math.min(first, entry.getStart());
+                last = Math.max(last, entry.getEnd());
+            }
+            leading = LauncherJsonReader.decodeString(buffer, section.getStart() + 1, first - section.getStart() - 1);
+            trailing = LauncherJsonReader.decodeString(buffer, last, section.getEnd() - 1 - last);
+        }
+        String indent = leading.substring(leading.lastIndexOf('\n') + 1);
+
+        Segments segments = new Segments(buffer);
+        segments.copy(0, section.getStart() + 1);
+        boolean first = true;
+        int encoded = 0;
+        long encodedBytes = 0;
+        long encodeNanos = 0;
+        for (Map.Entry<String, LauncherProfile> profile : profiles.entrySet()) {
+            segments.write(first ? leading : ',' + leading);
+            first = false;
+            LauncherFileIndex.ProfileEntry entry = entries.get(profile.getKey());
+            if (entry != null && upToDate && unchanged.test(profile.getKey())) {
+                segments.copy(entry.getStart(), entry.getEnd());
+            } else {
+                start = metrics == LauncherMetrics.NONE ? 0 : System.nanoTime();
+                byte[] json = (MinecraftLauncher.GSON.toJson(profile.getKey()) + ": "
+                        + MinecraftLauncher.GSON.toJson(profile.getValue()).replace("\n", '\n' + indent))
+                        .getBytes(StandardCharsets.UTF_8);
+                if (metrics != LauncherMetrics.NONE) {
+                    encodeNanos += System.nanoTime() - start;
+                }
+                segments.write(json);
+                encoded++;
+                encodedBytes += json.length;
+            }
+        }
+        if (metrics != LauncherMetrics.NONE) {
+            metrics.onEncode(file, encoded, encodedBytes, encodeNanos);
+        }
+        if (!profiles.isEmpty()) {
+            segments.write(trailing);
+        }
+        segments.write("}");
+        segments.copy(section.getEnd(), buffer.limit());
+        return segments.toPatch(file, stamp);
+    }
+
+    private static ProfilesPatch rewrite(File file, FileStamp stamp, JsonObject content, Map<String, LauncherProfile> profiles) {
+        LauncherMetrics metrics = MinecraftLauncher.getMetrics();
+        long start = metrics == LauncherMetrics.NONE ? 0 : System.nanoTime();
+        content.add(PROFILES, MinecraftLauncher.GSON.toJsonTree(profiles));
+        byte[] json = MinecraftLauncher.GSON.toJson(content).getBytes(StandardCharsets.UTF_8);
+        if (metrics != LauncherMetrics.NONE) {
+            metrics.onEncode(file, profiles.size(), json.length, System.nanoTime() - start);
+        }
+        return new ProfilesPatch(file, 0, json, null, stamp);
+    }
+
+    /**
+     * The new content of a file, as a sequence of copied ranges of the existing file and of new bytes
+     */
+    private static final class Segments {
+
+        /**
+         * The existing file
+         */
+        private final ByteBuffer source;
+
+        /**
+         * The segments. Each segment is either a {@code byte[]} of new content or an {@code int[]} of the
+         * start and end of a copied range.
+         */
+        private final List<Object> segments = new ArrayList<>();
+
+        Segments(ByteBuffer source) {
+            this.source = source;
+        }
+
+        void copy(int start, int end) {
+            if (start < end) {
+                segments.add(new int[]{start, end});
+            }
+        }
+
+        void write(String content) {
+            write(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void write(byte[] content) {
+            if (content.length > 0) {
+                segments.add(content);
+            }
+        }
+
+        /**
+         * Creates a patch which starts at the first byte that differs from the existing file
+         *
+         * @param file  The file to patch
+         * @param stamp The stamp of the file when it was read
+         * @return The patch
+         */
+        ProfilesPatch toPatch(File file, FileStamp stamp) {
+            int offset = 0;
+            int length = 0;
+            int firstSegment = segments.size();
+            int skip = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Object segment = segments.get(i);
+                int size = size(segment);
+                int same = 0;
+                if (segment instanceof int[] && ((int[]) segment)[0] == offset) {
+                    same = size;
+                } else {
+                    while (same < size && offset + same < source.limit() && byteAt(segment, same) == source.get(offset + same)) {
+                        same++;
+                    }
+                }
+                if (same < size) {
+                    firstSegment = i;
+                    skip = same;
+                    offset += same;
+                    break;
+                }
+                offset += size;
+            }
+            for (int i = firstSegment; i < segments.size(); i++) {
+                length += size(segments.get(i));
+            }
+            length -= skip;
+            byte[] content = new byte[length];
+            int position = 0;
+            for (int i = firstSegment; i < segments.size(); i++) {
+                Object segment = segments.get(i);
+                int from = i == firstSegment ? skip : 0;
+                int size = size(segment) - from;
+                if (segment instanceof byte[]) {
+                    System.arraycopy(segment, from, content, position, size);
+                } else {
+                    ByteBuffer slice = source.duplicate();
+                    slice.position(((int[]) segment)[0] + from);
+                    slice.get(content, position, size);
+                }
+                position += size;
+            }
+            return new ProfilesPatch(file, offset, content, source, stamp);
+        }
+
+        private byte byteAt(Object segment, int index) {
+            return segment instanceof byte[] ? ((byte[]) segment)[index] : source.get(((int[]) segment)[0] + index);
+        }
+
+        private static int size(Object segment) {
+            return segment instanceof byte[] ? ((byte[]) segment).length : ((int[]) segment)[1] - ((int[]) segment)[0];
+        }
+    }
+
+}
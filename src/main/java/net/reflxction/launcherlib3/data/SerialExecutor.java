@@ -0,0 +1,108 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks one at a time, in the order they were submitted, on the threads of another executor.
+ */
+final class SerialExecutor implements Executor {
+
+    /**
+     * The executor which provides the threads
+     */
+    private final Supplier<Executor> executor;
+
+    /**
+     * The tasks which are waiting to run
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * Whether a task is running or being dispatched. While this is set, new tasks are only queued.
+     */
+    private boolean running;
+
+    /**
+     * Initiates a new serial executor
+     *
+     * @param executor Supplies the executor which provides the threads. It is fetched every time a task is
+     *                 dispatched, so it can be changed at any time.
+     */
+    SerialExecutor(Supplier<Executor> executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            tasks.add(task);
+            if (running) {
+                return;
+            }
+            running = true;
+        }
+        drain();
+    }
+
+    /**
+     * Dispatches the next task. Tasks which the executor rejects are run on the current thread, one after the
+     * other, rather than stalling the queue. This never holds the lock of this executor while a task runs.
+     */
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+            try {
+                executor.get().execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        drain();
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                runRejected(task);
+            }
+        }
+    }
+
+    /**
+     * Runs a rejected task on the current thread. A failure is reported like it would be on a thread of the
+     * executor, so the remaining tasks still run.
+     */
+    private static void runRejected(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException | Error e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+}
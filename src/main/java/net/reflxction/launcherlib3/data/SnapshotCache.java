@@ -0,0 +1,312 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.data;
+
+import com.google.gson.stream.JsonToken;
+import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.launcher.LauncherContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A binary cache of the parsed content of a launcher file, which is kept in a sidecar file next to it
+ * ("launcher_profiles.json.cache").
+ * <p>
+ * The cache starts with the size, the last modification time and the CRC-32 of the launcher file it was
+ * encoded from, and is only used while the launcher file still matches all three. The content of the launcher file
+ * is copied token by token into a {@link BinaryJsonWriter}, and read back by the same adapters that read the
+ * launcher file, so reading it skips the tokenizing of the JSON text, and the whole cache is read at once. The
+ * names of the sections and the values of their enums are preset in the string table, so a name costs two bytes
+ * instead of its text, and the cache is smaller than the launcher file even when that file is not pretty-printed.
+ * <p>
+ * The sections which are read lazily from the launcher file and the profile icons are copied as their raw JSON
+ * bytes, so a context read from the cache leaves them undecoded as well.
+ *
+ * @see LauncherDataStore#setSnapshotCaching(boolean)
+ */
+final class SnapshotCache {
+
+    /**
+     * The first bytes of every cache file ("LLSC")
+     */
+    private static final int MAGIC = 0x4C4C5343;
+
+    /**
+     * The version of the encoding. This must be changed whenever the encoding changes.
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * The size of the header: the magic, the version, the size, the modification time and the hash
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * The strings the string table of the encoding starts with: the names of the fields of the launcher sections,
+     * and the names of the constants of their enums. The {@link #VERSION} must be changed whenever they change.
+     */
+    private static final List<String> PRESET = Collections.unmodifiableList(Arrays.asList(
+            // LauncherContext
+            "clientToken", "profiles", "authenticationDatabase", "launcherVersion", "settings", "analyticsToken",
+            "analyticsFailcount", "selectedProfile", "selectedUser",
+            // LauncherProfile
+            "name", "type", "created", "lastUsed", "icon", "lastVersionId", "gameDir", "javaDir", "javaArgs",
+            "logConfig", "logConfigIsXML",
+            // ProfileType
+            "latest-snapshot", "latest-release", "custom",
+            // ProfileAccount, SessionAccount and ProfileUser
+            "accessToken", "username", "displayName", "account", "profile",
+            // LauncherVersion
+            "format", "profilesFormat",
+            // LauncherSettings
+            "enableSnapshots", "enableAdvanced", "enableHistorical", "enableAnalytics", "keepLauncherOpen",
+            "showGameLog", "locale", "showMenu", "profileSorting", "crashAssistance",
+            // ProfileSorting
+            "byName", "byLastPlayed"
+    ));
+
+    /**
+     * The JSON key for the profiles map in the file
+     */
+    private static final String PROFILES = "profiles";
+
+    /**
+     * The JSON key for the icon of a profile
+     */
+    private static final String ICON = "icon";
+
+    /**
+     * The JSON keys of the sections of the launcher file which are read lazily
+     *
+     * @see LazySection
+     */
+    private static final Set<String> LAZY_SECTIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "authenticationDatabase", "launcherVersion", "settings", "selectedUser"
+    )));
+
+    /**
+     * The launcher file
+     */
+    private final File launcherFile;
+
+    /**
+     * The cache file
+     */
+    private final File file;
+
+    /**
+     * Initiates a new cache for the given launcher file
+     *
+     * @param launcherFile The launcher file
+     */
+    SnapshotCache(File launcherFile) {
+        this.launcherFile = launcherFile;
+        this.file = new File(launcherFile.getPath() + ".cache");
+    }
+
+    /**
+     * Reads the cached content, if it was encoded from the launcher file with the given stamp and hash
+     *
+     * @param stamp The stamp of the launcher file
+     * @param hash  The {@link #hash(ByteBuffer) hash} of the launcher file
+     * @return The cached content, or {@code null} if the cache does not exist, is stale or cannot be read
+     */
+    LauncherContext read(FileStamp stamp, long hash) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file.toPath());
+            if (bytes.length < HEADER_SIZE) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.wrap(bytes, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION || header.getLong() != stamp.getSize()
+                    || header.getLong() != stamp.getLastModified() || header.getLong() != hash) {
+                return null;
+            }
+            BinaryJsonReader reader = new BinaryJsonReader(launcherFile, bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, PRESET);
+            LauncherContext context = MinecraftLauncher.GSON.getAdapter(LauncherContext.class).read(reader);
+            return context == null ? new LauncherContext() : context;
+        } catch (IOException | RuntimeException e) {
+            // A cache which cannot be read is stale: the launcher file is parsed instead
+            return null;
+        }
+    }
+
+    /**
+     * Encodes the given content of the launcher file into a cache
+     *
+     * @param content The content of the launcher file, from index 0 to the limit, which must be valid JSON
+     * @param stamp   The stamp of the launcher file
+     * @param hash    The {@link #hash(ByteBuffer) hash} of the launcher file
+     * @return The encoded cache
+     * @throws IOException If the content could not be encoded
+     */
+    byte[] encode(ByteBuffer content, FileStamp stamp, long hash) throws IOException {
+        BinaryJsonWriter writer = new BinaryJsonWriter(Math.min(content.limit(), 1 << 20), PRESET);
+        LauncherJsonReader reader = new LauncherJsonReader(content);
+        if (reader.peek() == JsonToken.BEGIN_OBJECT) {
+            copyObject(content, reader, writer, 0);
+        } else {
+            copy(reader, writer);
+        }
+        return withHeader(writer.toByteArray(), stamp, hash);
+    }
+
+    /**
+     * Copies the object at the given depth of the launcher file: the file itself, the profiles map or a profile.
+     * The lazy sections of the file and the icons of the profiles are copied as raw values.
+     */
+    private static void copyObject(ByteBuffer content, LauncherJsonReader in, BinaryJsonWriter out, int depth)
+            throws IOException {
+        in.beginObject();
+        out.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            out.name(name);
+            JsonToken token = in.peek();
+            int start = in.getPosition();
+            boolean nested = token == JsonToken.BEGIN_OBJECT && (depth == 0 ? name.equals(PROFILES) : depth == 1);
+            if (nested) {
+                copyObject(content, in, out, depth + 1);
+            } else if (depth == 0 && LAZY_SECTIONS.contains(name) && token != JsonToken.NULL) {
+                in.skipValue();
+                out.rawValue(content, start, in.getPosition());
+            } else if (depth == 2 && name.equals(ICON) && token == JsonToken.STRING) {
+                in.skipValue();
+                out.rawString(content, start + 1, in.getPosition() - 1);
+            } else {
+                copy(in, out);
+            }
+        }
+        in.endObject();
+        out.endObject();
+    }
+
+    /**
+     * Copies the next value of the launcher file
+     */
+    private static void copy(LauncherJsonReader in, BinaryJsonWriter out) throws IOException {
+        int depth = 0;
+        do {
+            switch (in.peek()) {
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    in.endObject();
+                    out.endObject();
+                    depth--;
+                    break;
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                    break;
+                case NAME:
+                    out.name(in.nextName());
+                    break;
+                case STRING:
+                    out.value(in.nextString());
+                    break;
+                case NUMBER:
+                    String number = in.nextString();
+                    try {
+                        out.value(Long.parseLong(number));
+                    } catch (NumberFormatException e) {
+                        out.value(new BigDecimal(number));
+                    }
+                    break;
+                case BOOLEAN:
+                    out.value(in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    out.nullValue();
+                    break;
+                default:
+                    throw new IOException("Unexpected end of the launcher file");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Returns the given encoded content, preceded by the header of a cache
+     */
+    private static byte[] withHeader(byte[] content, FileStamp stamp, long hash) {
+        ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE + content.length);
+        bytes.putInt(MAGIC).putInt(VERSION).putLong(stamp.getSize()).putLong(stamp.getLastModified()).putLong(hash);
+        bytes.put(content);
+        return bytes.array();
+    }
+
+    /**
+     * Replaces the cache file with the given cache
+     *
+     * @param cache The {@link #encode(ByteBuffer, FileStamp, long) encoded} cache
+     * @throws IOException If the cache could not be written
+     */
+    void write(byte[] cache) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, cache);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the hash of the given launcher file content
+     *
+     * @param content The content of the launcher file, from index 0 to the limit
+     * @return The CRC-32 of the content
+     */
+    static long hash(ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        ByteBuffer bytes = content.duplicate();
+        bytes.position(0);
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+}
@@ -15,15 +15,28 @@
  */
 package net.reflxction.launcherlib3.launcher;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
 import net.reflxction.launcherlib3.MinecraftLauncher;
+import net.reflxction.launcherlib3.adapter.FieldGetter;
+import net.reflxction.launcherlib3.data.LazySection;
 import net.reflxction.launcherlib3.launcher.auth.ProfileAccount;
+import net.reflxction.launcherlib3.profile.LauncherProfile;
 import net.reflxction.launcherlib3.profile.ProfileUser;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * A representation of all the launcher data. This is accessible through {@link MinecraftLauncher#getInstance()}.
+ * <p>
+ * A context is an immutable snapshot of the file: its maps cannot be modified, and a changed file is represented
+ * by a new context. It can therefore be read by any number of threads without locking.
+ * <p>
+ * When the context is read from a launcher file, the authentication database, the launcher version, the
+ * settings and the selected user are only deserialized the first time they are requested (see
+ * {@link LazySection}). Tools which only need the profiles or the selected profile never build them.
  *
  * @see MinecraftLauncher
  */
@@ -35,20 +48,29 @@ public class LauncherContext {
      */
     private String clientToken;
 
+    /**
+     * Represents the launcher profiles, assigned to their names. This is a {@link LinkedHashMap} in order to
+     * keep the same order the profiles have in the file.
+     */
+    private LinkedHashMap<String, LauncherProfile> profiles;
+
     /**
      * Represents the authentication database
      */
-    private Map<String, ProfileAccount> authenticationDatabase;
+    @JsonAdapter(LazySection.Factory.class)
+    private LazySection<Map<String, ProfileAccount>> authenticationDatabase;
 
     /**
      * Represents the exposed launcher version information
      */
-    private LauncherVersion launcherVersion;
+    @JsonAdapter(LazySection.Factory.class)
+    private LazySection<LauncherVersion> launcherVersion;
 
     /**
      * Represents the exposed launcher settings
      */
-    private LauncherSettings settings;
+    @JsonAdapter(LazySection.Factory.class)
+    private LazySection<LauncherSettings> settings;
 
     /**
      * Represents the latest token for tracking analysts. Those are used locally by the launcher for
@@ -71,7 +93,57 @@ public class LauncherContext {
     /**
      * Represents the selected profile user
      */
-    private ProfileUser selectedUser;
+    @JsonAdapter(LazySection.Factory.class)
+    private LazySection<ProfileUser> selectedUser;
+
+    /**
+     * Creates an empty context, without any profile
+     */
+    public LauncherContext() {
+        this.profiles = new LinkedHashMap<>();
+    }
+
+    /**
+     * Creates a context. This is used by the generated adapter, and by {@link #withProfiles(Map)}.
+     *
+     * @param clientToken            The currently logged in client token
+     * @param profiles               The launcher profiles, assigned to their names. If this is {@code null}, the
+     *                               context has no profiles.
+     * @param authenticationDatabase The authentication database
+     * @param launcherVersion        The launcher version information
+     * @param settings               The launcher settings
+     * @param analyticsToken         The latest token for tracking analysts
+     * @param analyticsFailCount     The fail count for analytics
+     * @param selectedProfile        The name of the selected profile
+     * @param selectedUser           The selected profile user
+     */
+    LauncherContext(String clientToken, LinkedHashMap<String, LauncherProfile> profiles,
+                    LazySection<Map<String, ProfileAccount>> authenticationDatabase,
+                    LazySection<LauncherVersion> launcherVersion, LazySection<LauncherSettings> settings,
+                    String analyticsToken, int analyticsFailCount, String selectedProfile,
+                    LazySection<ProfileUser> selectedUser) {
+        this.clientToken = clientToken;
+        this.profiles = profiles == null ? new LinkedHashMap<>() : profiles;
+        this.authenticationDatabase = authenticationDatabase;
+        this.launcherVersion = launcherVersion;
+        this.settings = settings;
+        this.analyticsToken = analyticsToken;
+        this.analyticsFailCount = analyticsFailCount;
+        this.selectedProfile = selectedProfile;
+        this.selectedUser = selectedUser;
+    }
+
+    /**
+     * Returns a copy of this context, with the given profiles instead of the current ones. Every other section
+     * is shared with this context, including the sections which are not deserialized yet.
+     *
+     * @param profiles The profiles of the copy, assigned to their names
+     * @return The copied context
+     */
+    public LauncherContext withProfiles(Map<String, LauncherProfile> profiles) {
+        return new LauncherContext(clientToken, new LinkedHashMap<>(profiles), authenticationDatabase, launcherVersion,
+                settings, analyticsToken, analyticsFailCount, selectedProfile, selectedUser);
+    }
 
     /**
      * Returns the currently logged in client token
@@ -82,15 +154,28 @@ public class LauncherContext {
         return clientToken;
     }
 
+    /**
+     * Returns the launcher profiles, assigned to their names. For managing profiles, use
+     * {@link net.reflxction.launcherlib3.profile.ProfileManager}.
+     *
+     * @return An unmodifiable view of the launcher profiles
+     */
+    @FieldGetter("profiles")
+    public Map<String, LauncherProfile> getProfiles() {
+        return Collections.unmodifiableMap(profiles);
+    }
+
     /**
      * Returns the authentication database. All the logged in accounts. Every account in this key contains
      * a UUID-hashed map (which is used to save the selected user) which in turn includes the access
      * token, e-mail, and a profile (which contains the account display name)
      *
-     * @return The authentication database
+     * @return An unmodifiable view of the authentication database
      */
+    @FieldGetter("authenticationDatabase")
     public Map<String, ProfileAccount> getAuthenticationDatabase() {
-        return authenticationDatabase;
+        Map<String, ProfileAccount> accounts = LazySection.valueOf(authenticationDatabase);
+        return accounts == null ? null : Collections.unmodifiableMap(accounts);
     }
 
     /**
@@ -98,8 +183,9 @@ public class LauncherContext {
      *
      * @return The launcher version information
      */
+    @FieldGetter("launcherVersion")
     public LauncherVersion getLauncherVersion() {
-        return launcherVersion;
+        return LazySection.valueOf(launcherVersion);
     }
 
     /**
@@ -107,8 +193,9 @@ public class LauncherContext {
      *
      * @return The launcher settings
      */
+    @FieldGetter("settings")
     public LauncherSettings getSettings() {
-        return settings;
+        return LazySection.valueOf(settings);
     }
 
     /**
@@ -145,7 +232,8 @@ public class LauncherContext {
      *
      * @return The selected profile
      */
+    @FieldGetter("selectedUser")
     public ProfileUser getSelectedUser() {
-        return selectedUser;
+        return LazySection.valueOf(selectedUser);
     }
 }
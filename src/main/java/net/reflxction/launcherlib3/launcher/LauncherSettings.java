@@ -76,6 +76,41 @@ public class LauncherSettings {
      */
     private boolean crashAssistance;
 
+    /**
+     * Creates empty launcher settings
+     */
+    public LauncherSettings() {
+    }
+
+    /**
+     * Creates launcher settings. This is used by the generated adapter.
+     *
+     * @param enableSnapshots  Whether to include version IDs of game snapshots
+     * @param enableAdvanced   Whether to enable changing advanced Java settings
+     * @param enableHistorical Whether to enable the usage of historical versions
+     * @param enableAnalytics  Whether to enable analyzing the user session
+     * @param keepLauncherOpen Whether to keep the launcher open while the game is running
+     * @param showGameLog      Whether to show the game logs in a separate window
+     * @param locale           The selected language for the launcher
+     * @param showMenu         Whether to show the sliding menu under the Minecraft logo
+     * @param profileSorting   The way profiles are sorted in the profiles menu
+     * @param crashAssistance  Whether to contact Mojang when a crash occurs
+     */
+    LauncherSettings(boolean enableSnapshots, boolean enableAdvanced, boolean enableHistorical,
+                     boolean enableAnalytics, boolean keepLauncherOpen, boolean showGameLog, String locale,
+                     boolean showMenu, ProfileSorting profileSorting, boolean crashAssistance) {
+        this.enableSnapshots = enableSnapshots;
+        this.enableAdvanced = enableAdvanced;
+        this.enableHistorical = enableHistorical;
+        this.enableAnalytics = enableAnalytics;
+        this.keepLauncherOpen = keepLauncherOpen;
+        this.showGameLog = showGameLog;
+        this.locale = locale;
+        this.showMenu = showMenu;
+        this.profileSorting = profileSorting;
+        this.crashAssistance = crashAssistance;
+    }
+
     /**
      * Whether or not include version IDs of game snapshots when browsing profiles
      *
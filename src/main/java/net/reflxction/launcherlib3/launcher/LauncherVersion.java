@@ -36,6 +36,25 @@ public class LauncherVersion {
      */
     private int profilesFormat;
 
+    /**
+     * Creates an empty launcher version
+     */
+    public LauncherVersion() {
+    }
+
+    /**
+     * Creates a launcher version. This is used by the generated adapter.
+     *
+     * @param name           The name of this build
+     * @param format         The launcher format
+     * @param profilesFormat The profiles format
+     */
+    LauncherVersion(String name, int format, int profilesFormat) {
+        this.name = name;
+        this.format = format;
+        this.profilesFormat = profilesFormat;
+    }
+
     /**
      * Returns the name of this version build, e.g "2.1.1462".
      *
@@ -15,21 +15,29 @@
  */
 package net.reflxction.launcherlib3.launcher.auth;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import net.reflxction.launcherlib3.adapter.Deduplicate;
+import net.reflxction.launcherlib3.adapter.FieldGetter;
+import net.reflxction.launcherlib3.data.MappedString;
 import net.reflxction.launcherlib3.launcher.LauncherSection;
 
+import java.util.Collections;
 import java.util.Map;
 
 /**
  * Represents an account which is logged-in to the profile.
  */
 @LauncherSection("authenticationDatabase -> x")
+@Deduplicate
 public class ProfileAccount {
 
     /**
-     * The profile session access token
+     * The profile session access token. Tokens read from a launcher file are only decoded when they are
+     * requested.
      */
-    private String accessToken;
+    @JsonAdapter(MappedString.Adapter.class)
+    private MappedString accessToken;
 
     /**
      * The logged-in email
@@ -43,13 +51,33 @@ public class ProfileAccount {
      */
     private Map<String, SessionAccount> profiles;
 
+    /**
+     * Creates an empty profile account
+     */
+    public ProfileAccount() {
+    }
+
+    /**
+     * Creates a profile account. This is used by the generated adapter.
+     *
+     * @param accessToken The profile session access token
+     * @param email       The logged-in email
+     * @param profiles    The logged-in profiles, assigned to their UUIDs
+     */
+    ProfileAccount(MappedString accessToken, String email, Map<String, SessionAccount> profiles) {
+        this.accessToken = accessToken;
+        this.email = email;
+        this.profiles = profiles;
+    }
+
     /**
      * The profile session access token
      *
      * @return The profile session access token
      */
+    @FieldGetter("accessToken")
     public String getAccessToken() {
-        return accessToken;
+        return MappedString.valueOf(accessToken);
     }
 
     /**
@@ -65,9 +93,9 @@ public class ProfileAccount {
      * A map which contains all the logged-in emails. The {@link String} parameter is the UUID (no dashes), and the
      * assigned {@link SessionAccount} is the profile information which contains the player IGN display name.
      *
-     * @return The profiles map
+     * @return An unmodifiable view of the profiles map
      */
     public Map<String, SessionAccount> getProfiles() {
-        return profiles;
+        return profiles == null ? null : Collections.unmodifiableMap(profiles);
     }
 }
@@ -15,12 +15,14 @@
  */
 package net.reflxction.launcherlib3.launcher.auth;
 
+import net.reflxction.launcherlib3.adapter.Deduplicate;
 import net.reflxction.launcherlib3.launcher.LauncherSection;
 
 /**
  * Represents a logged-in account which is inside a {@link ProfileAccount}.
  */
 @LauncherSection("authenticationDatabase -> y -> profiles -> x")
+@Deduplicate
 public class SessionAccount {
 
     /**
@@ -28,6 +30,21 @@ public class SessionAccount {
      */
     private String displayName;
 
+    /**
+     * Creates an empty session account
+     */
+    public SessionAccount() {
+    }
+
+    /**
+     * Creates a session account. This is used by the generated adapter.
+     *
+     * @param displayName The player's display name
+     */
+    SessionAccount(String displayName) {
+        this.displayName = displayName;
+    }
+
     /**
      * Returns the player's display name
      *
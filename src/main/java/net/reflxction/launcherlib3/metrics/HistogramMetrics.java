@@ -0,0 +1,265 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.metrics;
+
+import java.io.File;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics which record every phase into in-memory {@link Histogram histograms}, regardless of the file. Durations
+ * are recorded in nanoseconds.
+ * <p>
+ * For example, the time of the slow saves can be attributed to a phase by comparing the high percentiles of
+ * {@link #getIndexTime()}, {@link #getEncodeTime()}, {@link #getWriteTime()} and {@link #getSyncTime()}.
+ */
+public final class HistogramMetrics implements LauncherMetrics {
+
+    private final Histogram readTime = new Histogram();
+
+    private final Histogram readBytes = new Histogram();
+
+    private final Histogram parseTime = new Histogram();
+
+    private final Histogram parsedTokens = new Histogram();
+
+    private final Histogram parsedProfiles = new Histogram();
+
+    private final Histogram indexTime = new Histogram();
+
+    private final Histogram encodeTime = new Histogram();
+
+    private final Histogram encodedProfiles = new Histogram();
+
+    private final Histogram encodedBytes = new Histogram();
+
+    private final Histogram writeTime = new Histogram();
+
+    private final Histogram writtenBytes = new Histogram();
+
+    private final Histogram syncTime = new Histogram();
+
+    private final Histogram dateParseTime = new Histogram();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    @Override
+    public void onRead(File file, long bytes, long nanos) {
+        readTime.record(nanos);
+        readBytes.record(bytes);
+    }
+
+    @Override
+    public void onParse(File file, long tokens, int profiles, long nanos) {
+        parseTime.record(nanos);
+        parsedTokens.record(tokens);
+        parsedProfiles.record(profiles);
+    }
+
+    @Override
+    public void onCacheLookup(File file, boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    @Override
+    public void onIndex(File file, int profiles, long nanos) {
+        indexTime.record(nanos);
+    }
+
+    @Override
+    public void onEncode(File file, int profiles, long bytes, long nanos) {
+        encodeTime.record(nanos);
+        encodedProfiles.record(profiles);
+        encodedBytes.record(bytes);
+    }
+
+    @Override
+    public void onWrite(File file, long bytes, long nanos) {
+        writeTime.record(nanos);
+        writtenBytes.record(bytes);
+    }
+
+    @Override
+    public void onSync(File file, long nanos) {
+        syncTime.record(nanos);
+    }
+
+    @Override
+    public void onDateParsed(long nanos) {
+        dateParseTime.record(nanos);
+    }
+
+    /**
+     * Returns the time it took to read the files
+     *
+     * @return The read times, in nanoseconds
+     */
+    public Histogram getReadTime() {
+        return readTime;
+    }
+
+    /**
+     * Returns the sizes of the files which were read
+     *
+     * @return The read sizes, in bytes
+     */
+    public Histogram getReadBytes() {
+        return readBytes;
+    }
+
+    /**
+     * Returns the time it took to tokenize and bind the files
+     *
+     * @return The parse times, in nanoseconds
+     */
+    public Histogram getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Returns the number of tokens of every parse
+     *
+     * @return The parsed tokens
+     */
+    public Histogram getParsedTokens() {
+        return parsedTokens;
+    }
+
+    /**
+     * Returns the number of profiles bound by every parse
+     *
+     * @return The parsed profiles
+     */
+    public Histogram getParsedProfiles() {
+        return parsedProfiles;
+    }
+
+    /**
+     * Returns the time it took to index the existing files of the saves
+     *
+     * @return The index times, in nanoseconds
+     */
+    public Histogram getIndexTime() {
+        return indexTime;
+    }
+
+    /**
+     * Returns the time it took to bind and pretty-print the changed profiles of the saves
+     *
+     * @return The encode times, in nanoseconds
+     */
+    public Histogram getEncodeTime() {
+        return encodeTime;
+    }
+
+    /**
+     * Returns the numbers of profiles which were encoded by the saves
+     *
+     * @return The encoded profile counts
+     */
+    public Histogram getEncodedProfiles() {
+        return encodedProfiles;
+    }
+
+    /**
+     * Returns the sizes of the changed profiles which were encoded by the saves
+     *
+     * @return The encoded sizes, in bytes
+     */
+    public Histogram getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    /**
+     * Returns the time it took to write the saves, without flushing them
+     *
+     * @return The write times, in nanoseconds
+     */
+    public Histogram getWriteTime() {
+        return writeTime;
+    }
+
+    /**
+     * Returns the number of bytes written by every save
+     *
+     * @return The written sizes, in bytes
+     */
+    public Histogram getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Returns the time it took to flush the durable saves to the disk
+     *
+     * @return The flush times, in nanoseconds
+     */
+    public Histogram getSyncTime() {
+        return syncTime;
+    }
+
+    /**
+     * Returns the time it took to parse the dates of the files
+     *
+     * @return The date parse times, in nanoseconds
+     */
+    public Histogram getDateParseTime() {
+        return dateParseTime;
+    }
+
+    /**
+     * Returns the number of files which were found in the snapshot cache, and therefore not parsed
+     *
+     * @return The number of cache hits
+     */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * Returns the number of files which were not found in the snapshot cache
+     *
+     * @return The number of cache misses
+     */
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * Discards every recorded value
+     */
+    public void reset() {
+        for (Histogram histogram : new Histogram[]{readTime, readBytes, parseTime, parsedTokens, parsedProfiles,
+                indexTime, encodeTime, encodedProfiles, encodedBytes, writeTime, writtenBytes, syncTime, dateParseTime}) {
+            histogram.reset();
+        }
+        cacheHits.reset();
+        cacheMisses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "read: " + readTime + " ns, " + readBytes + " bytes\n"
+                + "parse: " + parseTime + " ns, " + parsedTokens + " tokens\n"
+                + "cache: " + getCacheHits() + " hits, " + getCacheMisses() + " misses\n"
+                + "index: " + indexTime + " ns\n"
+                + "encode: " + encodeTime + " ns, " + encodedProfiles + " profiles, " + encodedBytes + " bytes\n"
+                + "write: " + writeTime + " ns, " + writtenBytes + " bytes\n"
+                + "sync: " + syncTime + " ns\n"
+                + "dates: " + dateParseTime + " ns";
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.metrics;
+
+import java.io.File;
+
+/**
+ * A launcher file operation which is being timed by a flight recorder event, as returned by {@link LauncherEvents}.
+ * The operation starts when the event is returned, and ends when it is {@link #complete(File, long, int) completed}.
+ * An event which is never completed (such as the event of an operation which failed) is not recorded.
+ */
+@FunctionalInterface
+public interface LauncherEvent {
+
+    /**
+     * The event of the operations which are not recorded
+     */
+    LauncherEvent NONE = (file, bytes, profiles) -> {
+    };
+
+    /**
+     * Ends the operation, and records it if it lasted longer than the threshold of its event type
+     *
+     * @param file     The launcher file, or {@code null} if the operation is not bound to a file
+     * @param bytes    The number of bytes which were read or written
+     * @param profiles The number of profiles which were read or written
+     */
+    void complete(File file, long bytes, int profiles);
+
+}
@@ -0,0 +1,125 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.metrics;
+
+import java.io.File;
+
+/**
+ * Receives the timings and sizes of every phase of the loads and saves of launcher files, once the metrics are
+ * {@link net.reflxction.launcherlib3.MinecraftLauncher#setMetrics(LauncherMetrics) set}.
+ * <p>
+ * A load is split into reading the file and parsing it, which tokenizes the content and binds it into objects in
+ * a single pass. A save is split into reading the existing file, indexing it, encoding the changed profiles,
+ * writing the new content, and flushing it to the disk. Every method does nothing by default, so implementations only override the phases they measure.
+ * <p>
+ * Methods are called synchronously by the thread which performs the operation, possibly from several threads at
+ * once, and should therefore be fast and thread-safe. Exceptions thrown by them are propagated to the operation.
+ * When the metrics are {@link #NONE}, the phases are not timed at all.
+ *
+ * @see HistogramMetrics
+ */
+public interface LauncherMetrics {
+
+    /**
+     * The metrics which ignore every phase. This is the default.
+     */
+    LauncherMetrics NONE = new LauncherMetrics() {
+    };
+
+    /**
+     * Called when a launcher file was read into memory
+     *
+     * @param file  The launcher file
+     * @param bytes The size of the file
+     * @param nanos The time it took to read the file, in nanoseconds
+     */
+    default void onRead(File file, long bytes, long nanos) {
+    }
+
+    /**
+     * Called when the content of a launcher file was parsed. The values of the sections which are only
+     * deserialized on first access are not part of the parse, and each of them counts as a single token.
+     *
+     * @param file     The launcher file
+     * @param tokens   The number of tokens which were read
+     * @param profiles The number of profiles which were bound
+     * @param nanos    The time it took to tokenize and bind the content, in nanoseconds
+     */
+    default void onParse(File file, long tokens, int profiles, long nanos) {
+    }
+
+    /**
+     * Called when the parsed content of a launcher file was looked up in the
+     * {@link net.reflxction.launcherlib3.data.LauncherDataStore#setSnapshotCaching(boolean) snapshot cache}
+     *
+     * @param file The launcher file
+     * @param hit  Whether the content was found, in which case the file is not parsed
+     */
+    default void onCacheLookup(File file, boolean hit) {
+    }
+
+    /**
+     * Called when the existing content of a launcher file was indexed for a save, to find the entries of the
+     * profiles whose bytes can be copied. The {@link #onRead(File, long, long) read} of the file is not part of it.
+     *
+     * @param file     The launcher file
+     * @param profiles The number of profiles which were found in the file
+     * @param nanos    The time it took to index the content, in nanoseconds
+     */
+    default void onIndex(File file, int profiles, long nanos) {
+    }
+
+    /**
+     * Called when the changed profiles of a launcher file were encoded for a save. The unchanged profiles are
+     * copied from the existing content, and are neither counted nor timed.
+     *
+     * @param file     The launcher file
+     * @param profiles The number of profiles which were bound and pretty-printed
+     * @param bytes    The number of bytes they were encoded into
+     * @param nanos    The time it took to bind and pretty-print them, in nanoseconds
+     */
+    default void onEncode(File file, int profiles, long bytes, long nanos) {
+    }
+
+    /**
+     * Called when the new content of a launcher file was written, before it is flushed to the disk
+     *
+     * @param file  The launcher file
+     * @param bytes The number of bytes which were written
+     * @param nanos The time it took to write them, in nanoseconds
+     */
+    default void onWrite(File file, long bytes, long nanos) {
+    }
+
+    /**
+     * Called when a durable save flushed the new content to the disk, and atomically replaced the launcher file
+     * with it
+     *
+     * @param file  The launcher file
+     * @param nanos The time it took to flush the content, replace the file and flush its directory, in nanoseconds
+     */
+    default void onSync(File file, long nanos) {
+    }
+
+    /**
+     * Called when a date was parsed from a launcher file
+     *
+     * @param nanos The time it took to parse the date, in nanoseconds
+     */
+    default void onDateParsed(long nanos) {
+    }
+
+}
@@ -0,0 +1,257 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A concurrent map of profiles which keeps the insertion order of its keys, like a {@link java.util.LinkedHashMap}.
+ * <p>
+ * Reads never block, and writes only lock the key they write. Iteration follows the insertion order, and is
+ * weakly consistent: it never fails because of concurrent writes, and reflects some (but not necessarily all)
+ * of the writes made after it started.
+ *
+ * @see ProfileManager#ProfileManager(String, boolean)
+ */
+final class ConcurrentProfileMap extends AbstractMap<String, LauncherProfile> implements ConcurrentMap<String, LauncherProfile> {
+
+    /**
+     * The entries of this map, assigned to their keys
+     */
+    private final ConcurrentHashMap<String, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * The keys of this map, assigned to their insertion order
+     */
+    private final ConcurrentSkipListMap<Long, String> order = new ConcurrentSkipListMap<>();
+
+    /**
+     * The insertion order of the next new key
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * The view of the entries of this map
+     */
+    private final Set<Map.Entry<String, LauncherProfile>> entrySet = new EntrySet();
+
+    /**
+     * Initiates a new map which contains the given profiles, in their iteration order
+     *
+     * @param profiles Profiles to add
+     */
+    ConcurrentProfileMap(Map<String, LauncherProfile> profiles) {
+        profiles.forEach(this::put);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return nodes.containsKey(key);
+    }
+
+    @Override
+    public LauncherProfile get(Object key) {
+        Node node = nodes.get(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public LauncherProfile put(String key, LauncherProfile value) {
+        Objects.requireNonNull(value, "value");
+        Node[] previous = new Node[1];
+        nodes.compute(key, (k, node) -> {
+            previous[0] = node;
+            return insert(k, value, node);
+        });
+        return previous[0] == null ? null : previous[0].value;
+    }
+
+    @Override
+    public LauncherProfile putIfAbsent(String key, LauncherProfile value) {
+        Objects.requireNonNull(value, "value");
+        Node[] previous = new Node[1];
+        nodes.compute(key, (k, node) -> {
+            previous[0] = node;
+            return node != null ? node : insert(k, value, null);
+        });
+        return previous[0] == null ? null : previous[0].value;
+    }
+
+    @Override
+    public LauncherProfile remove(Object key) {
+        Node node = nodes.remove(key);
+        if (node == null) {
+            return null;
+        }
+        order.remove(node.order, key);
+        return node.value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        boolean[] removed = new boolean[1];
+        nodes.computeIfPresent((String) key, (k, node) -> {
+            if (!Objects.equals(node.value, value)) {
+                return node;
+            }
+            order.remove(node.order, k);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean replace(String key, LauncherProfile oldValue, LauncherProfile newValue) {
+        Objects.requireNonNull(newValue, "value");
+        boolean[] replaced = new boolean[1];
+        nodes.computeIfPresent(key, (k, node) -> {
+            if (!Objects.equals(node.value, oldValue)) {
+                return node;
+            }
+            replaced[0] = true;
+            return new Node(node.order, newValue);
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public LauncherProfile replace(String key, LauncherProfile value) {
+        Objects.requireNonNull(value, "value");
+        Node[] previous = new Node[1];
+        nodes.computeIfPresent(key, (k, node) -> {
+            previous[0] = node;
+            return new Node(node.order, value);
+        });
+        return previous[0] == null ? null : previous[0].value;
+    }
+
+    @Override
+    public void clear() {
+        for (String key : order.values()) {
+            remove(key);
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, LauncherProfile>> entrySet() {
+        return entrySet;
+    }
+
+    /**
+     * Creates the node of the given key. New keys are appended to the insertion order, while existing keys
+     * keep their position.
+     */
+    private Node insert(String key, LauncherProfile value, Node existing) {
+        if (existing != null) {
+            return new Node(existing.order, value);
+        }
+        long position = sequence.incrementAndGet();
+        order.put(position, key);
+        return new Node(position, value);
+    }
+
+    /**
+     * An entry of the map
+     */
+    private static final class Node {
+
+        /**
+         * The insertion order of the key
+         */
+        private final long order;
+
+        /**
+         * The profile
+         */
+        private final LauncherProfile value;
+
+        Node(long order, LauncherProfile value) {
+            this.order = order;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The view of the entries of the map, in insertion order
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, LauncherProfile>> {
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+
+        @Override
+        public Iterator<Map.Entry<String, LauncherProfile>> iterator() {
+            Iterator<Map.Entry<Long, String>> keys = order.entrySet().iterator();
+            return new Iterator<Map.Entry<String, LauncherProfile>>() {
+
+                private Map.Entry<String, LauncherProfile> next;
+
+                private String last;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && keys.hasNext()) {
+                        Map.Entry<Long, String> key = keys.next();
+                        Node node = nodes.get(key.getValue());
+                        if (node != null && node.order == key.getKey()) {
+                            next = new SimpleImmutableEntry<>(key.getValue(), node.value);
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Map.Entry<String, LauncherProfile> next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Map.Entry<String, LauncherProfile> entry = next;
+                    last = entry.getKey();
+                    next = null;
+                    return entry;
+                }
+
+                @Override
+                public void remove() {
+                    if (last == null) {
+                        throw new IllegalStateException();
+                    }
+                    ConcurrentProfileMap.this.remove(last);
+                    last = null;
+                }
+            };
+        }
+    }
+
+}
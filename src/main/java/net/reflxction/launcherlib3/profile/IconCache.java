@@ -0,0 +1,153 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded LRU cache of decoded icon images. The cache is bounded by the total number of bytes of the
+ * cached images, and evicts the least recently used images first.
+ * <p>
+ * Icons are held weakly and compared by identity, so an icon which is no longer used by any profile is
+ * collected along with its bytes, and its image is evicted.
+ *
+ * @see ProfileIcon#getBytes()
+ */
+final class IconCache {
+
+    /**
+     * The cached images, in access order
+     */
+    private final LinkedHashMap<Key, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The queue of the keys whose icons were collected
+     */
+    private final ReferenceQueue<ProfileIcon> collected = new ReferenceQueue<>();
+
+    /**
+     * The maximum number of bytes to cache
+     */
+    private long limit;
+
+    /**
+     * The number of bytes currently cached
+     */
+    private long size;
+
+    /**
+     * Initiates a new cache
+     *
+     * @param limit The maximum number of bytes to cache
+     */
+    IconCache(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Returns the cached image of the given icon
+     *
+     * @param icon Icon to get for
+     * @return The cached image, or {@code null} if it is not cached
+     */
+    synchronized byte[] get(ProfileIcon icon) {
+        expunge();
+        return images.get(new Key(icon, null));
+    }
+
+    /**
+     * Caches the image of the given icon. Images which are larger than the limit are not cached.
+     *
+     * @param icon  Icon to cache for
+     * @param image The decoded image
+     */
+    synchronized void put(ProfileIcon icon, byte[] image) {
+        expunge();
+        if (image.length > limit) {
+            return;
+        }
+        byte[] previous = images.put(new Key(icon, collected), image);
+        size += image.length - (previous == null ? 0 : previous.length);
+        trim();
+    }
+
+    /**
+     * Sets the maximum number of bytes to cache, evicting images if required.
+     *
+     * @param limit The new limit
+     */
+    synchronized void setLimit(long limit) {
+        this.limit = limit;
+        expunge();
+        trim();
+    }
+
+    /**
+     * Evicts the images of the icons which were collected
+     */
+    private void expunge() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            byte[] image = images.remove(key);
+            if (image != null) {
+                size -= image.length;
+            }
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Key, byte[]>> iterator = images.entrySet().iterator();
+        while (size > limit && iterator.hasNext()) {
+            size -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A weak key which compares icons by identity. Keys of collected icons are only equal to themselves.
+     */
+    private static final class Key extends WeakReference<ProfileIcon> {
+
+        private final int hash;
+
+        private Key(ProfileIcon icon, ReferenceQueue<ProfileIcon> queue) {
+            super(icon, queue);
+            this.hash = System.identityHashCode(icon);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            ProfileIcon icon = get();
+            return icon != null && icon == ((Key) o).get();
+        }
+    }
+
+}
@@ -15,7 +15,10 @@
  */
 package net.reflxction.launcherlib3.profile;
 
+import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import net.reflxction.launcherlib3.adapter.Deduplicate;
+import net.reflxction.launcherlib3.adapter.FieldGetter;
 import net.reflxction.launcherlib3.launcher.LauncherSection;
 
 import java.util.Date;
@@ -31,11 +34,12 @@ import java.util.Date;
  * @see ProfileType
  */
 @LauncherSection("profiles -> x")
+@Deduplicate
 public class LauncherProfile {
 
     /**
      * Represents an empty launcher profile. All instances built from new {@link LauncherProfileBuilder} are
-     * derived from this instance and are updated with chaining setters.
+     * copies of this instance, which are updated with chaining setters.
      */
     public static final LauncherProfile EMPTY = new LauncherProfile();
 
@@ -61,8 +65,10 @@ public class LauncherProfile {
 
     /**
      * Represents a <p>Base64</p>-encoded image which appears as a logo for the profile in the profiles menu.
+     * This is only decoded when it is requested.
      */
-    String icon;
+    @JsonAdapter(ProfileIcon.Adapter.class)
+    ProfileIcon icon;
 
     /**
      * Represents the last launcher version this profile was launched on
@@ -97,6 +103,43 @@ public class LauncherProfile {
      */
     boolean logConfigIsXML;
 
+    /**
+     * Creates an empty launcher profile. Use {@link LauncherProfileBuilder} to create a profile with values.
+     */
+    public LauncherProfile() {
+    }
+
+    /**
+     * Creates a launcher profile. This is used by the generated adapter.
+     *
+     * @param name           The profile name
+     * @param type           The type of the profile
+     * @param created        The date the profile was created at
+     * @param lastUsed       The date the profile was last used at
+     * @param icon           The profile icon
+     * @param lastVersionId  The last launcher version the profile was launched on
+     * @param gameDirectory  The directory the profile saves its content in
+     * @param javaDirectory  The Java directory the game runs on
+     * @param javaArguments  The start-up arguments of the profile
+     * @param logConfig      The path to the logging configuration of the profile
+     * @param logConfigIsXML Whether the logging configuration is a XML file
+     */
+    LauncherProfile(String name, ProfileType type, Date created, Date lastUsed, ProfileIcon icon, String lastVersionId,
+                    String gameDirectory, String javaDirectory, String javaArguments, String logConfig,
+                    boolean logConfigIsXML) {
+        this.name = name;
+        this.type = type;
+        this.created = created;
+        this.lastUsed = lastUsed;
+        this.icon = icon;
+        this.lastVersionId = lastVersionId;
+        this.gameDirectory = gameDirectory;
+        this.javaDirectory = javaDirectory;
+        this.javaArguments = javaArguments;
+        this.logConfig = logConfig;
+        this.logConfigIsXML = logConfigIsXML;
+    }
+
     /**
      * Returns the profile name
      *
@@ -120,6 +163,7 @@ public class LauncherProfile {
      *
      * @return The creation date of this profile
      */
+    @FieldGetter("created")
     public Date getCreationDate() {
         return created;
     }
@@ -138,8 +182,19 @@ public class LauncherProfile {
      *
      * @return The profile icon
      */
+    @FieldGetter("icon")
     public String getIcon() {
-        return icon;
+        return icon == null ? null : icon.getValue();
+    }
+
+    /**
+     * Returns the decoded image which appears as a logo for the profile in the profiles menu.
+     *
+     * @return The image bytes, or {@code null} if the profile has no image icon (such as built-in icons).
+     * @see ProfileIcon#getBytes()
+     */
+    public byte[] getIconBytes() {
+        return icon == null ? null : icon.getBytes();
     }
 
     /**
@@ -147,6 +202,7 @@ public class LauncherProfile {
      *
      * @return The last version ID launched with this profile
      */
+    @FieldGetter("lastVersionId")
     public String getVersionID() {
         return lastVersionId;
     }
@@ -193,10 +249,21 @@ public class LauncherProfile {
      *
      * @return Whether the logging configuration is a XML file or not.
      */
+    @FieldGetter("logConfigIsXML")
     public boolean isLogConfigXML() {
         return logConfigIsXML;
     }
 
+    /**
+     * Creates a copy of this profile
+     *
+     * @return The copy
+     */
+    LauncherProfile copy() {
+        return new LauncherProfile(name, type, created, lastUsed, icon, lastVersionId, gameDirectory, javaDirectory,
+                javaArguments, logConfig, logConfigIsXML);
+    }
+
     /**
      * Derives a new {@link LauncherProfileBuilder} from this launcher profile.
      *
@@ -36,12 +36,13 @@ public class LauncherProfileBuilder {
     }
 
     /**
-     * Initiates a new launcher profile builder from the given profile instance.
+     * Initiates a new launcher profile builder from a copy of the given profile instance. Changes done in the
+     * builder do not modify the given profile.
      *
      * @param profile Profile to build for
      */
     public LauncherProfileBuilder(LauncherProfile profile) {
-        this.profile = profile;
+        this.profile = profile.copy();
     }
 
     /**
@@ -106,7 +107,7 @@ public class LauncherProfileBuilder {
      * @return This builder instance
      */
     public LauncherProfileBuilder setIcon(String icon) {
-        profile.icon = icon;
+        profile.icon = ProfileIcon.of(icon);
         return this;
     }
 
@@ -0,0 +1,209 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.reflxction.launcherlib3.data.BinaryJsonReader;
+import net.reflxction.launcherlib3.data.LauncherJsonReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Represents the icon of a {@link LauncherProfile}. This is either the name of a built-in icon (such as "Grass")
+ * or a <p>Base64</p>-encoded image, in the form of {@code data:image/png;base64,...}.
+ * <p>
+ * Icons which are read from a launcher file are not decoded. Instead, they keep a copy of the raw bytes of the
+ * icon, and are only decoded when they are requested. Decoded images are kept in a bounded LRU cache, which can
+ * be controlled with {@link #setCacheLimit(long)}.
+ *
+ * @implNote An icon only keeps its own bytes, not the content of the file it was read from, so the file content
+ * can be collected as soon as it is parsed, whichever icons are still used.
+ * @see LauncherProfile#getIcon()
+ * @see LauncherProfile#getIconBytes()
+ */
+public final class ProfileIcon {
+
+    /**
+     * The marker which precedes the Base64 payload of an image icon
+     */
+    private static final String BASE64_MARKER = ";base64,";
+
+    /**
+     * The cache of decoded images
+     */
+    private static final IconCache CACHE = new IconCache(4 * 1024 * 1024);
+
+    /**
+     * The icon value, or {@code null} if the icon is held as raw bytes
+     */
+    private final String value;
+
+    /**
+     * The raw UTF-8 bytes of the JSON string of the icon, without the quotes, or {@code null} if the icon is held
+     * as a string
+     */
+    private final byte[] content;
+
+    private ProfileIcon(String value, byte[] content) {
+        this.value = value;
+        this.content = content;
+    }
+
+    /**
+     * Returns the icon value. Icons held as raw bytes are decoded on every invocation, and the decoded value is
+     * not kept in memory.
+     *
+     * @return The icon value
+     */
+    public String getValue() {
+        return content == null ? value : LauncherJsonReader.decodeString(ByteBuffer.wrap(content), 0, content.length);
+    }
+
+    /**
+     * Returns the decoded image bytes of this icon, if it is a Base64-encoded image.
+     *
+     * @return The image bytes, or {@code null} if this is the name of a built-in icon.
+     */
+    public byte[] getBytes() {
+        byte[] bytes = CACHE.get(this);
+        if (bytes == null) {
+            bytes = decodeImage();
+            if (bytes == null) {
+                return null;
+            }
+            CACHE.put(this, bytes);
+        }
+        return bytes.clone();
+    }
+
+    private byte[] decodeImage() {
+        if (content == null || hasEscapes()) {
+            String value = getValue();
+            int marker = value.indexOf(BASE64_MARKER);
+            if (marker == -1) {
+                return null;
+            }
+            return Base64.getDecoder().decode(value.substring(marker + BASE64_MARKER.length()));
+        }
+        int marker = indexOfMarker();
+        if (marker == -1) {
+            return null;
+        }
+        int payload = marker + BASE64_MARKER.length();
+        ByteBuffer image = Base64.getDecoder().decode(ByteBuffer.wrap(content, payload, content.length - payload));
+        byte[] bytes = new byte[image.remaining()];
+        image.get(bytes);
+        return bytes;
+    }
+
+    private boolean hasEscapes() {
+        for (byte b : content) {
+            if (b == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int indexOfMarker() {
+        int end = Math.min(content.length, 128) - BASE64_MARKER.length();
+        outer:
+        for (int i = 0; i <= end; i++) {
+            for (int j = 0; j < BASE64_MARKER.length(); j++) {
+                if (content[i + j] != BASE64_MARKER.charAt(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Creates an icon from the given value
+     *
+     * @param value The icon value. This is either the name of a built-in icon or a Base64-encoded image.
+     * @return The icon, or {@code null} if the value is {@code null}
+     */
+    public static ProfileIcon of(String value) {
+        return value == null ? null : new ProfileIcon(value, null);
+    }
+
+    /**
+     * Creates an icon from a copy of the given range of the content of a launcher file. The range must contain
+     * the content of the JSON string of the icon, without the quotes. The content is not referenced by the icon.
+     *
+     * @param source The content of the file
+     * @param offset The index of the first byte of the icon
+     * @param length The number of bytes of the icon
+     * @return The icon
+     */
+    public static ProfileIcon mapped(ByteBuffer source, int offset, int length) {
+        byte[] content = new byte[length];
+        ByteBuffer slice = source.duplicate();
+        slice.position(offset);
+        slice.get(content);
+        return new ProfileIcon(null, content);
+    }
+
+    /**
+     * Sets the maximum number of bytes of decoded images which are cached. Default value is 4 MiB.
+     *
+     * @param limit The new limit, in bytes
+     */
+    public static void setCacheLimit(long limit) {
+        CACHE.setLimit(limit);
+    }
+
+    /**
+     * The Gson adapter of icons. Icons are written as plain strings, and are kept as raw bytes instead of
+     * being decoded when the reader is a {@link LauncherJsonReader}, or a {@link BinaryJsonReader} over a raw
+     * string.
+     */
+    public static final class Adapter extends TypeAdapter<ProfileIcon> {
+
+        @Override
+        public void write(JsonWriter out, ProfileIcon icon) throws IOException {
+            if (icon == null) {
+                out.nullValue();
+            } else {
+                out.value(icon.getValue());
+            }
+        }
+
+        @Override
+        public ProfileIcon read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            if (token == JsonToken.STRING && in instanceof LauncherJsonReader) {
+                return ((LauncherJsonReader) in).nextIcon();
+            }
+            if (token == JsonToken.STRING && in instanceof BinaryJsonReader) {
+                return ((BinaryJsonReader) in).nextIcon();
+            }
+            return of(in.nextString());
+        }
+    }
+
+}
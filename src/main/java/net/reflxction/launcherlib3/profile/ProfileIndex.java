@@ -0,0 +1,345 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import net.reflxction.launcherlib3.launcher.ProfileSorting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Secondary indexes over the cached profiles of a {@link ProfileManager}, which answer lookups by an attribute
+ * without scanning every profile, and keep {@link SortedProfileView sorted views} of them.
+ * <p>
+ * The indexes are kept up to date by the manager on every add, remove and reload. Every index is sorted, so
+ * it supports range queries as well as exact lookups. Profiles which have no value for an attribute are not
+ * part of its index.
+ * <p>
+ * Results are always checked against the cached profiles, so a lookup never returns a profile which no longer
+ * matches. Changes made directly to the map of {@link ProfileManager#getProfiles()} are not indexed.
+ *
+ * @see ProfileManager#getIndex()
+ */
+public final class ProfileIndex {
+
+    /**
+     * The indexed profiles, assigned to their names
+     */
+    private final Map<String, LauncherProfile> profiles;
+
+    /**
+     * The index of the profile types
+     */
+    private final AttributeIndex<ProfileType> type = new AttributeIndex<>(LauncherProfile::getType);
+
+    /**
+     * The index of the last version IDs
+     */
+    private final AttributeIndex<String> versionId = new AttributeIndex<>(LauncherProfile::getVersionID);
+
+    /**
+     * The index of the game directories
+     */
+    private final AttributeIndex<String> gameDirectory = new AttributeIndex<>(LauncherProfile::getGameDirectory);
+
+    /**
+     * The index of the Java directories
+     */
+    private final AttributeIndex<String> javaDirectory = new AttributeIndex<>(LauncherProfile::getJavaDirectory);
+
+    /**
+     * The index of the last use dates
+     */
+    private final AttributeIndex<Date> lastUsed = new AttributeIndex<>(profile -> copy(profile.getLastUsed()));
+
+    /**
+     * The index of the creation dates
+     */
+    private final AttributeIndex<Date> created = new AttributeIndex<>(profile -> copy(profile.getCreationDate()));
+
+    /**
+     * The sorted views of the profiles
+     */
+    private final Map<ProfileSorting, SortedProfileView> views = new EnumMap<>(ProfileSorting.class);
+
+    /**
+     * The locks of the keys. Changes of the same key are serialized, so that the indexes end up matching the
+     * profile which was put last.
+     */
+    private final Object[] locks = new Object[64];
+
+    /**
+     * All the indexes
+     */
+    private final List<AttributeIndex<?>> indexes = Collections.unmodifiableList(Arrays.asList(
+            type, versionId, gameDirectory, javaDirectory, lastUsed, created));
+
+    /**
+     * Initiates a new index of the given profiles, and indexes every profile they currently contain
+     *
+     * @param profiles The profiles to index
+     */
+    ProfileIndex(Map<String, LauncherProfile> profiles) {
+        this.profiles = profiles;
+        Arrays.setAll(locks, i -> new Object());
+        for (ProfileSorting sorting : ProfileSorting.values()) {
+            views.put(sorting, new SortedProfileView(sorting));
+        }
+        profiles.forEach((key, profile) -> update(key, null, profile));
+    }
+
+    /**
+     * Returns the index of the profile types
+     *
+     * @return The type index
+     */
+    public AttributeIndex<ProfileType> byType() {
+        return type;
+    }
+
+    /**
+     * Returns the index of the last version IDs. Version IDs are ordered as strings.
+     *
+     * @return The version ID index
+     */
+    public AttributeIndex<String> byVersionId() {
+        return versionId;
+    }
+
+    /**
+     * Returns the index of the game directories
+     *
+     * @return The game directory index
+     */
+    public AttributeIndex<String> byGameDirectory() {
+        return gameDirectory;
+    }
+
+    /**
+     * Returns the index of the Java directories
+     *
+     * @return The Java directory index
+     */
+    public AttributeIndex<String> byJavaDirectory() {
+        return javaDirectory;
+    }
+
+    /**
+     * Returns the index of the dates the profiles were last used at
+     *
+     * @return The last use index
+     */
+    public AttributeIndex<Date> byLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Returns the index of the dates the profiles were created at
+     *
+     * @return The creation date index
+     */
+    public AttributeIndex<Date> byCreationDate() {
+        return created;
+    }
+
+    /**
+     * Returns the live view of the profiles with the given sorting
+     *
+     * @param sorting The sorting of the view
+     * @return The sorted view
+     */
+    public SortedProfileView getView(ProfileSorting sorting) {
+        return views.get(sorting);
+    }
+
+    /**
+     * Puts the given profile into the indexed profiles, and indexes it
+     *
+     * @param key     The key of the profile
+     * @param profile The profile
+     * @return The previous profile of the key, or {@code null} if there was none
+     */
+    LauncherProfile put(String key, LauncherProfile profile) {
+        synchronized (lock(key)) {
+            LauncherProfile previous = profiles.put(key, profile);
+            update(key, previous, profile);
+            return previous;
+        }
+    }
+
+    /**
+     * Removes the profile of the given key from the indexed profiles and from the indexes
+     *
+     * @param key The key of the profile
+     * @return The removed profile, or {@code null} if there was none
+     */
+    LauncherProfile remove(String key) {
+        synchronized (lock(key)) {
+            LauncherProfile previous = profiles.remove(key);
+            if (previous != null) {
+                update(key, previous, null);
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Updates the indexes after the profile of the given key was replaced
+     *
+     * @param key      The key of the profile
+     * @param previous The previous profile, or {@code null} if there was none
+     * @param profile  The new profile, or {@code null} if it was removed
+     */
+    void update(String key, LauncherProfile previous, LauncherProfile profile) {
+        for (AttributeIndex<?> index : indexes) {
+            index.update(key, previous, profile);
+        }
+        for (SortedProfileView view : views.values()) {
+            view.update(key, profile);
+        }
+    }
+
+    /**
+     * Removes every profile from the indexed profiles and from the indexes
+     */
+    void clear() {
+        profiles.clear();
+        indexes.forEach(AttributeIndex::clear);
+        views.values().forEach(SortedProfileView::clear);
+    }
+
+    private Object lock(String key) {
+        return locks[(key == null ? 0 : key.hashCode() & 0x7fffffff) % locks.length];
+    }
+
+    private static Date copy(Date date) {
+        return date == null ? null : new Date(date.getTime());
+    }
+
+    /**
+     * A sorted index of the profiles by one of their attributes
+     *
+     * @param <V> The type of the attribute
+     */
+    public final class AttributeIndex<V extends Comparable<? super V>> {
+
+        /**
+         * The keys of the profiles, assigned to their attribute values
+         */
+        private final ConcurrentSkipListMap<V, Set<String>> entries = new ConcurrentSkipListMap<>();
+
+        /**
+         * Returns the attribute of a profile
+         */
+        private final Function<LauncherProfile, V> attribute;
+
+        AttributeIndex(Function<LauncherProfile, V> attribute) {
+            this.attribute = attribute;
+        }
+
+        /**
+         * Returns the profiles which have the given value
+         *
+         * @param value Value to look up
+         * @return The matching profiles
+         */
+        public List<LauncherProfile> get(V value) {
+            Set<String> keys = entries.get(value);
+            List<LauncherProfile> result = new ArrayList<>();
+            if (keys != null) {
+                collect(value, keys, result);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the profiles whose value is within the given range, ordered by their values.
+         *
+         * @param from The lowest value (inclusive), or {@code null} for no lower bound
+         * @param to   The highest value (exclusive), or {@code null} for no upper bound
+         * @return The matching profiles
+         */
+        public List<LauncherProfile> range(V from, V to) {
+            NavigableMap<V, Set<String>> range = entries;
+            if (from != null && to != null) {
+                range = entries.subMap(from, true, to, false);
+            } else if (from != null) {
+                range = entries.tailMap(from, true);
+            } else if (to != null) {
+                range = entries.headMap(to, false);
+            }
+            List<LauncherProfile> result = new ArrayList<>();
+            range.forEach((value, keys) -> collect(value, keys, result));
+            return result;
+        }
+
+        /**
+         * Returns the distinct values of the indexed profiles, in ascending order
+         *
+         * @return An unmodifiable view of the indexed values
+         */
+        public NavigableSet<V> values() {
+            return Collections.unmodifiableNavigableSet(entries.keySet());
+        }
+
+        private void collect(V value, Collection<String> keys, List<LauncherProfile> result) {
+            for (String key : keys) {
+                LauncherProfile profile = profiles.get(key);
+                if (profile != null && Objects.equals(attribute.apply(profile), value)) {
+                    result.add(profile);
+                }
+            }
+        }
+
+        private synchronized void clear() {
+            entries.clear();
+        }
+
+        private synchronized void update(String key, LauncherProfile previous, LauncherProfile profile) {
+            V before = previous == null ? null : attribute.apply(previous);
+            V after = profile == null ? null : attribute.apply(profile);
+            if (before != null && !before.equals(after)) {
+                entries.computeIfPresent(before, (value, keys) -> {
+                    keys.remove(key);
+                    return keys.isEmpty() ? null : keys;
+                });
+            }
+            if (after != null) {
+                entries.compute(after, (value, keys) -> {
+                    if (keys == null) {
+                        keys = ConcurrentHashMap.newKeySet();
+                    }
+                    keys.add(key);
+                    return keys;
+                });
+            }
+        }
+    }
+
+}
@@ -15,14 +15,26 @@
  */
 package net.reflxction.launcherlib3.profile;
 
-import com.google.gson.reflect.TypeToken;
 import net.reflxction.launcherlib3.MinecraftLauncher;
-import net.reflxction.simplejson.configuration.DirectConfiguration;
-import net.reflxction.simplejson.json.JsonFile;
+import net.reflxction.launcherlib3.data.FileStamp;
+import net.reflxction.launcherlib3.data.GroupCommit;
+import net.reflxction.launcherlib3.data.LauncherDataStore;
+import net.reflxction.launcherlib3.data.LauncherFileWatcher;
+import net.reflxction.launcherlib3.data.ProfilesPatch;
+import net.reflxction.launcherlib3.launcher.ProfileSorting;
+import net.reflxction.launcherlib3.metrics.LauncherEvent;
+import net.reflxction.launcherlib3.metrics.LauncherEvents;
 
-import java.lang.reflect.Type;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * Profile manager with multiple helping methods for controlling profiles
@@ -33,30 +45,67 @@ import java.util.Map;
 public class ProfileManager {
 
     /**
-     * The JSON key for the profiles map in the file
+     * The cached profiles, which are stored until they are saved. When the profiles are read again, the cache is
+     * replaced rather than refilled, so readers always see a complete map along with its indexes.
      */
-    private static final String PROFILES = "profiles";
+    private volatile CachedProfiles cache;
 
     /**
-     * The type of the profiles map. This is used by the GSON deserializers.
+     * Guards the replacement of the cache. Adding and removing profiles holds the read lock, so that a profile
+     * is never written into a cache which is being replaced, and would then be lost.
      */
-    private static final Type PROFILES_MAP_TYPE = new TypeToken<LinkedHashMap<String, LauncherProfile>>() {
-    }.getType();
+    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
 
     /**
-     * A default instance of the profile manager. Useful if no new initiation is required.
+     * Whether this manager can be used from multiple threads
      */
-    private static final ProfileManager INSTANCE = new ProfileManager();
+    private final boolean concurrent;
 
     /**
-     * Map which stores all profiles until they are saved.
+     * The profiles as they were read from the file. Profiles which are still the same instances are
+     * considered unchanged, unless they are marked as dirty.
      */
-    private Map<String, LauncherProfile> profileMap;
+    private Map<String, LauncherProfile> baseline;
 
     /**
-     * The configuration used to retrieve information
+     * The stamp of the file when the baseline was read
      */
-    private final DirectConfiguration configuration;
+    private FileStamp baselineStamp;
+
+    /**
+     * The keys of the profiles which were added or modified since they were read
+     */
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The shared store of the launcher data, which is also used by launchers of the same file
+     */
+    private final LauncherDataStore store;
+
+    /**
+     * Whether saves replace the file atomically, or write it in place
+     */
+    private volatile boolean durable;
+
+    /**
+     * The group commit which merges saves, or {@code null} if every save is written immediately
+     */
+    private volatile GroupCommit groupCommit;
+
+    /**
+     * The save which is waiting to be written by the group commit or by an asynchronous save
+     */
+    private PendingSave pending;
+
+    /**
+     * Whether the cached profiles were cleared by a save, and hence only contain the profiles added since
+     */
+    private boolean cleared;
+
+    /**
+     * The listener which applies the changes of the file to the cached profiles
+     */
+    private final LauncherFileWatcher.Listener autoReload = new AutoReload();
 
     /**
      * Initiates a new ProfileManager from the given path
@@ -64,8 +113,24 @@ public class ProfileManager {
      * @param path Path to the launcher profiles json file.
      */
     public ProfileManager(String path) {
-        this.configuration = DirectConfiguration.of(JsonFile.of(path));
-        this.profileMap = configuration.get(PROFILES, PROFILES_MAP_TYPE, MinecraftLauncher.GSON);
+        this(path, false);
+    }
+
+    /**
+     * Initiates a new ProfileManager from the given path.
+     * <p>
+     * A concurrent manager can be shared by multiple threads. Reading profiles never blocks, adding or removing
+     * a profile only locks the key it writes (and waits while the cache is being replaced by a reload), and the
+     * profiles keep their insertion order when they are saved. Unlike a regular manager, a concurrent manager keeps its cached profiles after a save, since clearing them
+     * would make other threads see an empty map.
+     *
+     * @param path       Path to the launcher profiles json file.
+     * @param concurrent Whether the manager will be used from multiple threads
+     */
+    public ProfileManager(String path, boolean concurrent) {
+        this.store = LauncherDataStore.of(path);
+        this.concurrent = concurrent;
+        setBaseline(store.getSnapshot());
     }
 
     /**
@@ -79,11 +144,14 @@ public class ProfileManager {
      * Returns a map which contains all the cached profiles.
      * <p>
      * Every profile is assigned to its name, which can be fetched using {@link LauncherProfile#getName()}
+     * <p>
+     * If this manager is concurrent, the map is thread-safe and its iteration is weakly consistent. It may be
+     * replaced by {@link #updateCache()}, so it should be fetched again rather than kept.
      *
      * @return A map of the cached profiles
      */
     public Map<String, LauncherProfile> getProfiles() {
-        return profileMap;
+        return cache.profiles;
     }
 
     /**
@@ -93,11 +161,41 @@ public class ProfileManager {
      * @return The launcher profile
      */
     public LauncherProfile getProfile(String profileName) {
-        return profileMap.get(profileName);
+        return cache.profiles.get(profileName);
     }
 
     /**
-     * Creates the given launcher, and adds all the properties appropriately
+     * Returns the secondary indexes of the cached profiles, which look up profiles by their type, version,
+     * directories or dates without scanning every profile. The indexes are kept up to date on every add,
+     * remove and reload.
+     * <p>
+     * The indexes may be replaced by {@link #updateCache()}, so they should be fetched again rather than kept.
+     *
+     * @return The profile indexes
+     */
+    public ProfileIndex getIndex() {
+        return cache.index;
+    }
+
+    /**
+     * Returns a live view of the cached profiles, ordered with the given sorting. The view is updated on every
+     * add, remove and reload, and can be paged without copying the profiles.
+     * <p>
+     * The view may be replaced by {@link #updateCache()}, so it should be fetched again rather than kept.
+     *
+     * @param sorting The sorting of the view, such as the one of {@link net.reflxction.launcherlib3.launcher.LauncherSettings#getProfileSorting()}
+     * @return The sorted view
+     */
+    public SortedProfileView getSortedView(ProfileSorting sorting) {
+        return cache.index.getView(sorting);
+    }
+
+    /**
+     * Creates the given launcher, and adds all the properties appropriately. Adding a profile with the name of
+     * an existing profile replaces it.
+     * <p>
+     * Profiles which are modified (for example through {@link LauncherProfile#asBuilder()}, which builds a copy)
+     * must be added again, so that the change is saved.
      *
      * @param profile Profile to create
      * @return This manager instance
@@ -105,7 +203,13 @@ public class ProfileManager {
      * @see #save()
      */
     public ProfileManager addProfile(LauncherProfile profile) {
-        profileMap.put(profile.getName(), profile);
+        cacheLock.readLock().lock();
+        try {
+            dirty.add(profile.getName());
+            cache.index.put(profile.getName(), profile);
+        } finally {
+            cacheLock.readLock().unlock();
+        }
         return this;
     }
 
@@ -118,37 +222,427 @@ public class ProfileManager {
      * @see #save()
      */
     public ProfileManager removeProfile(String profile) {
-        profileMap.remove(profile);
+        cacheLock.readLock().lock();
+        try {
+            cache.index.remove(profile);
+            dirty.remove(profile);
+        } finally {
+            cacheLock.readLock().unlock();
+        }
         return this;
     }
 
     /**
-     * Updates the cached profiles map.
+     * Updates the cached profiles map. Any save which is waiting for the group commit is written first.
      *
      * @return The new cached map
      */
     public Map<String, LauncherProfile> updateCache() {
-        return profileMap = configuration.get(PROFILES, PROFILES_MAP_TYPE, MinecraftLauncher.GSON);
+        flush();
+        synchronized (this) {
+            setBaseline(store.reloadSnapshot());
+            return cache.profiles;
+        }
     }
 
     /**
      * Applies the changes to the file. This should be called after we're done removing or creating a
      * launcher.
+     * <p>
+     * Only the profiles which were added or modified are encoded. Removed profiles are dropped, and every
+     * other byte of the file is kept as it is. If the file was changed by another program since it was read,
+     * all profiles are encoded again.
+     * <p>
+     * If a group commit window is set, the file is not written immediately, and every save issued within the
+     * window is merged into a single write. If that write fails, the failure is reported to the futures of the
+     * {@link #saveAsync() asynchronous saves} merged into it, and the profiles are written again by the next
+     * save or {@link #flush()}.
+     * <p>
+     * A regular manager clears its cached profiles after saving them, while a concurrent manager keeps them.
+     *
+     * @see #setDurable(boolean)
+     * @see #setGroupCommitWindow(long, TimeUnit)
+     */
+    public synchronized void save() {
+        queueSave();
+        GroupCommit groupCommit = this.groupCommit;
+        if (groupCommit == null) {
+            writePending();
+            return;
+        }
+        groupCommit.request();
+    }
+
+    /**
+     * Applies the changes to the file asynchronously. The profiles are captured immediately, and written on the
+     * {@link LauncherDataStore#setExecutor(java.util.concurrent.Executor) I/O executor}, or by the group commit
+     * if a window is set.
+     * <p>
+     * Operations on the same file are ordered: a save never overwrites the profiles of a later save.
+     *
+     * @return A future which is completed once the profiles are written
+     * @see #save()
+     */
+    public CompletableFuture<Void> saveAsync() {
+        GroupCommit groupCommit;
+        synchronized (this) {
+            queueSave();
+            groupCommit = this.groupCommit;
+        }
+        CompletableFuture<?> write = groupCommit == null ? store.submit(() -> {
+            writePending();
+            return null;
+        }) : groupCommit.request();
+        return write.thenApply(result -> null);
+    }
+
+    /**
+     * Updates the cached profiles map asynchronously, on the
+     * {@link LauncherDataStore#setExecutor(java.util.concurrent.Executor) I/O executor}. The file is read after
+     * every asynchronous operation which was previously issued on it.
+     *
+     * @return A future which is completed with the new cached map
+     * @see #updateCache()
+     */
+    public CompletableFuture<Map<String, LauncherProfile>> updateCacheAsync() {
+        return store.submit(this::updateCache);
+    }
+
+    /**
+     * Stages the changes made by the given body, validates them, and commits them with a single write. The
+     * transaction starts from the current profiles, including the changes which were not saved yet, and
+     * unsaved changes are committed along with it.
+     * <p>
+     * If the body throws, validation fails or the file cannot be written, the cached profiles (including the
+     * changes the body made through this manager) are restored as they were and the exception is rethrown.
+     * After a successful commit, the cached profiles are the committed ones, so there is no need to
+     * {@link #updateCache() update the cache}.
+     * <p>
+     * The write does not wait for the group commit window, and is always durable regardless of
+     * {@link #setDurable(boolean)}: the file is either fully replaced or left as it was.
+     *
+     * @param body The changes to stage
+     * @return This manager instance
+     * @throws IllegalStateException If a staged profile is invalid
+     * @see ProfileTransaction#validate()
+     */
+    public synchronized ProfileManager transaction(Consumer<ProfileTransaction> body) {
+        Map<String, LauncherProfile> previousProfiles = new LinkedHashMap<>(cache.profiles);
+        Set<String> previousDirty = new HashSet<>(dirty);
+        boolean previousCleared = cleared;
+        PendingSave pending = this.pending;
+        try {
+            Map<String, LauncherProfile> current;
+            if (cleared) {
+                current = new LinkedHashMap<>(pending == null ? baseline : pending.profiles);
+                current.putAll(cache.profiles);
+            } else {
+                current = cache.profiles;
+            }
+            ProfileTransaction transaction = new ProfileTransaction(current);
+            body.accept(transaction);
+            transaction.validate();
+
+            Map<String, LauncherProfile> profiles = new LinkedHashMap<>(transaction.getProfiles());
+            Set<String> changed = new HashSet<>(dirty);
+            changed.addAll(transaction.getChanged());
+            if (this.pending != null) {
+                changed.addAll(this.pending.changed);
+            }
+            // The transaction supersedes any queued save, which then has nothing left to write
+            this.pending = null;
+            write(profiles, changed, true);
+            dirty.clear();
+            cleared = false;
+            setProfiles(profiles);
+            return this;
+        } catch (RuntimeException | Error e) {
+            this.pending = pending;
+            dirty.clear();
+            dirty.addAll(previousDirty);
+            cleared = previousCleared;
+            setProfiles(previousProfiles);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the save which is waiting for the group commit window to end, or whose group commit write failed,
+     * if there is one. This blocks until the file is written.
+     *
+     * @throws java.io.UncheckedIOException If the file could not be written
+     */
+    public void flush() {
+        GroupCommit groupCommit = this.groupCommit;
+        if (groupCommit != null) {
+            groupCommit.flush();
+            writePending();
+        }
+    }
+
+    /**
+     * Sets whether saves should be durable. Durable saves write the file to a temporary file, flush it to the
+     * disk and atomically rename it over the file, so a crash never leaves a partially written file. Otherwise,
+     * saves only write the changed part of the file in place, which is faster but not crash-safe.
+     *
+     * @param durable Whether saves should be durable
+     * @return This manager instance
      */
-    public void save() {
-        configuration.set(PROFILES, profileMap);
-        configuration.save(Throwable::printStackTrace);
-        profileMap.clear();
+    public ProfileManager setDurable(boolean durable) {
+        this.durable = durable;
+        return this;
+    }
+
+    /**
+     * Sets the group commit window. Saves which are issued within the window are merged into a single
+     * write at the end of the window, which runs in order with the other asynchronous operations on the file.
+     * A window of 0 disables group commits, and writes every save immediately.
+     *
+     * @param window The length of the window
+     * @param unit   The unit of the window
+     * @return This manager instance
+     */
+    public ProfileManager setGroupCommitWindow(long window, TimeUnit unit) {
+        flush();
+        groupCommit = window <= 0 ? null : new GroupCommit(this::writePending, store.getSerialExecutor(), window, unit);
+        return this;
+    }
+
+    /**
+     * Sets whether the cached profiles should follow the changes made to the file by other programs. When
+     * enabled, the file is watched, and every profile which was added, removed or changed in the file is
+     * applied to the cached profiles. Profiles which were added or modified through this manager and not
+     * saved yet are left as they are.
+     *
+     * @param autoReload Whether changes of the file should be applied
+     * @return This manager instance
+     * @see LauncherDataStore#getWatcher()
+     */
+    public ProfileManager setAutoReload(boolean autoReload) {
+        if (autoReload) {
+            store.getWatcher().addListener(this.autoReload);
+        } else {
+            store.getWatcher().removeListener(this.autoReload);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of saves which were merged into the write of another save by the group commit, and
+     * hence did not cause a write of their own.
+     *
+     * @return The number of merged saves
+     */
+    public long getMergedSaves() {
+        GroupCommit groupCommit = this.groupCommit;
+        return groupCommit == null ? 0 : groupCommit.getMergedRequests();
+    }
+
+    /**
+     * Captures the profiles to save, and merges them into the save which is waiting to be written. As each
+     * save captures every profile, only the latest one has to be written.
+     */
+    private synchronized void queueSave() {
+        Map<String, LauncherProfile> profiles = new LinkedHashMap<>(cache.profiles);
+        Set<String> changed = new HashSet<>(dirty);
+        if (concurrent) {
+            // Profiles which are added while saving stay dirty for the next save
+            dirty.removeAll(changed);
+        } else {
+            cache.index.clear();
+            dirty.clear();
+            cleared = true;
+        }
+        if (pending != null) {
+            changed.addAll(pending.changed);
+        }
+        pending = new PendingSave(profiles, changed);
+    }
+
+    private void writePending() {
+        synchronized (this) {
+            PendingSave save = pending;
+            pending = null;
+            if (save != null) {
+                try {
+                    write(save.profiles, save.changed, durable);
+                } catch (RuntimeException | Error e) {
+                    // The profiles are kept for the next save
+                    pending = save;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the given profiles to the file
+     *
+     * @param profiles The profiles to write
+     * @param changed  The keys of the profiles which were added or modified since the baseline was read
+     * @param durable  Whether the file is atomically replaced, rather than written in place
+     */
+    private synchronized void write(Map<String, LauncherProfile> profiles, Set<String> changed, boolean durable) {
+        LauncherEvent event = LauncherEvents.beginSave();
+        ProfilesPatch patch = store.write(() -> ProfilesPatch.create(store.getFile(), profiles, baselineStamp,
+                key -> !changed.contains(key) && baseline.get(key) == profiles.get(key)), durable);
+        // The other sections of the current snapshot can be kept if it still matches the patched file
+        LauncherDataStore.Snapshot base = store.peekSnapshot();
+        boolean reusable = patch.getSourceStamp().equals(baselineStamp) && base != null
+                && base.getStamp().equals(baselineStamp);
+        if (reusable) {
+            store.publish(base, profiles);
+        } else {
+            store.invalidate();
+        }
+        baseline = profiles;
+        baselineStamp = FileStamp.of(store.getFile());
+        event.complete(store.getFile(), patch.getLength(), profiles.size());
+    }
+
+    /**
+     * Sets the profiles of the given snapshot as the baseline, and resets the cached profiles to them.
+     *
+     * @param snapshot Snapshot to use
+     */
+    private void setBaseline(LauncherDataStore.Snapshot snapshot) {
+        baseline = snapshot.getContext().getProfiles();
+        baselineStamp = snapshot.getStamp();
+        dirty.clear();
+        cleared = false;
+        setProfiles(baseline);
+    }
+
+    /**
+     * Replaces the cached profiles with the given ones, and indexes them. This waits for the profiles which are
+     * being added or removed.
+     *
+     * @param profiles The new profiles
+     */
+    private void setProfiles(Map<String, LauncherProfile> profiles) {
+        Map<String, LauncherProfile> map = concurrent ? new ConcurrentProfileMap(profiles) : new LinkedHashMap<>(profiles);
+        CachedProfiles cache = new CachedProfiles(map, new ProfileIndex(map));
+        cacheLock.writeLock().lock();
+        try {
+            this.cache = cache;
+        } finally {
+            cacheLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the changes of the file to the cached profiles
+     */
+    private final class AutoReload implements LauncherFileWatcher.Listener {
+
+        @Override
+        public void onProfileAdded(String key, LauncherProfile profile) {
+            synchronized (ProfileManager.this) {
+                if (!dirty.contains(key)) {
+                    cache.index.put(key, profile);
+                }
+            }
+        }
+
+        @Override
+        public void onProfileRemoved(String key, LauncherProfile profile) {
+            synchronized (ProfileManager.this) {
+                if (!dirty.contains(key)) {
+                    cache.index.remove(key);
+                }
+            }
+        }
+
+        @Override
+        public void onProfileChanged(String key, LauncherProfile previous, LauncherProfile profile) {
+            synchronized (ProfileManager.this) {
+                if (!dirty.contains(key)) {
+                    cache.index.put(key, profile);
+                }
+            }
+        }
+
+        @Override
+        public void onReload(LauncherDataStore.Snapshot snapshot, Set<String> unchanged) {
+            synchronized (ProfileManager.this) {
+                // Unchanged profiles keep their cached instances, which still match the file
+                Map<String, LauncherProfile> reloaded = new LinkedHashMap<>(snapshot.getContext().getProfiles());
+                for (String key : unchanged) {
+                    LauncherProfile cached = baseline.get(key);
+                    if (cached != null) {
+                        reloaded.put(key, cached);
+                    }
+                }
+                baseline = reloaded;
+                baselineStamp = snapshot.getStamp();
+            }
+        }
+    }
+
+    /**
+     * The cached profiles along with their indexes, which are always replaced together
+     */
+    private static final class CachedProfiles {
+
+        /**
+         * The cached profiles. Profiles are added to and removed from it through the indexes.
+         */
+        private final Map<String, LauncherProfile> profiles;
+
+        /**
+         * The secondary indexes of the cached profiles
+         */
+        private final ProfileIndex index;
+
+        CachedProfiles(Map<String, LauncherProfile> profiles, ProfileIndex index) {
+            this.profiles = profiles;
+            this.index = index;
+        }
+    }
+
+    /**
+     * A save which is waiting for the group commit
+     */
+    private static final class PendingSave {
+
+        /**
+         * The profiles to write
+         */
+        private final Map<String, LauncherProfile> profiles;
+
+        /**
+         * The keys of the profiles which were added or modified since the baseline was read
+         */
+        private final Set<String> changed;
+
+        PendingSave(Map<String, LauncherProfile> profiles, Set<String> changed) {
+            this.profiles = profiles;
+            this.changed = changed;
+        }
     }
 
     /**
      * Returns the singleton instance of this manager. Useful if the user
      * doesn't need a new initiation (for a new location for debugging for example).
+     * <p>
+     * The instance is created, and the file is read, on the first invocation. The parsed file is shared with
+     * {@link MinecraftLauncher#getInstance()}.
      *
      * @return The instance of the profile manager
      */
     public static ProfileManager getInstance() {
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Holds the default instance of the profile manager, so that it is only created when it is requested
+     */
+    private static final class InstanceHolder {
+
+        /**
+         * A default instance of the profile manager. Useful if no new initiation is required.
+         */
+        private static final ProfileManager INSTANCE = new ProfileManager();
     }
 
 }
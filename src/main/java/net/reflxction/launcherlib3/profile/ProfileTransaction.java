@@ -0,0 +1,144 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of profile changes which are staged, and then committed to the file with a single write.
+ * <p>
+ * Changes made through a transaction are not visible through the {@link ProfileManager} until the transaction
+ * is committed.
+ *
+ * @see ProfileManager#transaction(java.util.function.Consumer)
+ */
+public final class ProfileTransaction {
+
+    /**
+     * The staged profiles, assigned to their names
+     */
+    private final Map<String, LauncherProfile> profiles;
+
+    /**
+     * The keys of the profiles which were added by this transaction
+     */
+    private final Set<String> changed = new HashSet<>();
+
+    /**
+     * Initiates a new transaction
+     *
+     * @param profiles The profiles the transaction starts from
+     */
+    ProfileTransaction(Map<String, LauncherProfile> profiles) {
+        this.profiles = new LinkedHashMap<>(profiles);
+    }
+
+    /**
+     * Stages the given profile. Adding a profile with the name of an existing profile replaces it.
+     *
+     * @param profile Profile to add
+     * @return This transaction instance
+     */
+    public ProfileTransaction addProfile(LauncherProfile profile) {
+        if (profile == null) {
+            throw new IllegalArgumentException("Profile cannot be null");
+        }
+        profiles.put(profile.getName(), profile);
+        changed.add(profile.getName());
+        return this;
+    }
+
+    /**
+     * Stages the removal of the given profile, using the name.
+     *
+     * @param profile Profile to remove
+     * @return This transaction instance
+     */
+    public ProfileTransaction removeProfile(String profile) {
+        profiles.remove(profile);
+        changed.remove(profile);
+        return this;
+    }
+
+    /**
+     * Returns the staged profile of the given name
+     *
+     * @param profileName Name of the profile
+     * @return The staged profile, or {@code null} if there is none
+     */
+    public LauncherProfile getProfile(String profileName) {
+        return profiles.get(profileName);
+    }
+
+    /**
+     * Returns the staged profiles, assigned to their names
+     *
+     * @return An unmodifiable view of the staged profiles
+     */
+    public Map<String, LauncherProfile> getProfiles() {
+        return Collections.unmodifiableMap(profiles);
+    }
+
+    /**
+     * Returns the keys of the profiles which were added by this transaction
+     *
+     * @return The changed keys
+     */
+    Set<String> getChanged() {
+        return changed;
+    }
+
+    /**
+     * Validates the staged profiles. Every profile must have a name, and every profile which was added by this
+     * transaction must have a version, and must not have the name of another staged profile.
+     *
+     * @throws IllegalStateException If any staged profile is invalid
+     */
+    void validate() {
+        Map<String, Integer> names = new HashMap<>();
+        for (Map.Entry<String, LauncherProfile> entry : profiles.entrySet()) {
+            if (entry.getKey() == null || entry.getKey().isEmpty()) {
+                throw new IllegalStateException("Invalid transaction: a staged profile has no name");
+            }
+            names.merge(nameOf(entry), 1, Integer::sum);
+        }
+        for (Map.Entry<String, LauncherProfile> entry : profiles.entrySet()) {
+            if (!changed.contains(entry.getKey())) {
+                continue;
+            }
+            String version = entry.getValue().getVersionID();
+            if (version == null || version.isEmpty()) {
+                throw new IllegalStateException("Invalid transaction: the profile " + entry.getKey() + " has no version");
+            }
+            if (names.get(nameOf(entry)) > 1) {
+                throw new IllegalStateException("Invalid transaction: more than one profile is named " + nameOf(entry));
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the given staged profile, which is its key if the profile has no name of its own
+     */
+    private static String nameOf(Map.Entry<String, LauncherProfile> entry) {
+        String name = entry.getValue().getName();
+        return name == null ? entry.getKey() : name;
+    }
+}
@@ -41,6 +41,23 @@ public class ProfileUser {
     @SerializedName("profile")
     private String profileUUID;
 
+    /**
+     * Creates an empty profile user
+     */
+    public ProfileUser() {
+    }
+
+    /**
+     * Creates a profile user. This is used by the generated adapter.
+     *
+     * @param account     The session UUID-hashed key of the selected user
+     * @param profileUUID The UUID of the selected user
+     */
+    ProfileUser(String account, String profileUUID) {
+        this.account = account;
+        this.profileUUID = profileUUID;
+    }
+
     /**
      * Returns the session UUID-hashed key of the currently selected user. This can be used
      * to retrieve the selected {@link ProfileAccount} from the {@link ProfileAccount#getProfiles()}
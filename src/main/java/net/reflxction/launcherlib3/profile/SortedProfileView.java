@@ -0,0 +1,395 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.profile;
+
+import net.reflxction.launcherlib3.launcher.ProfileSorting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A live view of the cached profiles of a {@link ProfileManager}, ordered the way the launcher orders them in its
+ * profiles menu.
+ * <p>
+ * The view is kept up to date on every add, remove and reload, and each change costs O(log n). Pages of the view
+ * are read in O(log n + limit), without copying or sorting the other profiles.
+ * <p>
+ * Profiles are ordered by the values they had when they were added, so a profile which is modified in place
+ * keeps its position until it is added again.
+ *
+ * @see ProfileManager#getSortedView(ProfileSorting)
+ */
+public final class SortedProfileView {
+
+    /**
+     * The sorting of this view
+     */
+    private final ProfileSorting sorting;
+
+    /**
+     * Guards the tree. Pages are read under the read lock, and changes are made under the write lock.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * The entries of the view, assigned to the keys of their profiles
+     */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * The root of the tree, or {@code null} if the view is empty
+     */
+    private Node root;
+
+    /**
+     * Initiates a new empty view
+     *
+     * @param sorting The sorting of the view
+     */
+    SortedProfileView(ProfileSorting sorting) {
+        this.sorting = sorting;
+    }
+
+    /**
+     * Returns the sorting of this view
+     *
+     * @return The sorting
+     */
+    public ProfileSorting getSorting() {
+        return sorting;
+    }
+
+    /**
+     * Returns the number of profiles in this view
+     *
+     * @return The number of profiles
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the profile at the given position of this view
+     *
+     * @param position The position of the profile
+     * @return The profile
+     * @throws IndexOutOfBoundsException If there is no profile at the position
+     */
+    public LauncherProfile get(int position) {
+        lock.readLock().lock();
+        try {
+            if (position < 0 || position >= size(root)) {
+                throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size(root));
+            }
+            Node node = root;
+            while (true) {
+                int left = size(node.left);
+                if (position < left) {
+                    node = node.left;
+                } else if (position == left) {
+                    return node.entry.profile;
+                } else {
+                    position -= left + 1;
+                    node = node.right;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the position of the profile of the given key in this view
+     *
+     * @param key The key of the profile
+     * @return The position of the profile, or -1 if it is not in this view
+     */
+    public int indexOf(String key) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return -1;
+            }
+            int position = 0;
+            Node node = root;
+            while (node != null) {
+                int comparison = entry.compareTo(node.entry);
+                if (comparison < 0) {
+                    node = node.left;
+                } else {
+                    position += size(node.left);
+                    if (comparison == 0) {
+                        return position;
+                    }
+                    position++;
+                    node = node.right;
+                }
+            }
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of this view
+     *
+     * @param offset The position of the first profile of the page
+     * @param limit  The maximum number of profiles in the page
+     * @return The profiles of the page, in order. This is empty if the offset is past the end of the view.
+     */
+    public List<LauncherProfile> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+        lock.readLock().lock();
+        try {
+            List<LauncherProfile> page = new ArrayList<>(Math.min(limit, Math.max(0, size(root) - offset)));
+            // Find the first node of the page, keeping the nodes which come after it on the stack
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            int position = offset;
+            while (node != null) {
+                int left = size(node.left);
+                if (position <= left) {
+                    stack.push(node);
+                    if (position == left) {
+                        break;
+                    }
+                    node = node.left;
+                } else {
+                    position -= left + 1;
+                    node = node.right;
+                }
+            }
+            while (page.size() < limit && !stack.isEmpty()) {
+                node = stack.pop();
+                page.add(node.entry.profile);
+                for (node = node.right; node != null; node = node.left) {
+                    stack.push(node);
+                }
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the position of the profile of the given key
+     *
+     * @param key     The key of the profile
+     * @param profile The new profile, or {@code null} if it was removed
+     */
+    void update(String key, LauncherProfile profile) {
+        lock.writeLock().lock();
+        try {
+            Entry previous = profile == null ? entries.remove(key) : entries.get(key);
+            if (previous != null) {
+                root = remove(root, previous);
+            }
+            if (profile != null) {
+                Entry entry = new Entry(key, profile, sorting);
+                entries.put(key, entry);
+                root = insert(root, new Node(entry));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes every profile from this view
+     */
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            root = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static Node insert(Node root, Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.priority > root.priority) {
+            Node[] split = split(root, node.entry);
+            node.left = split[0];
+            node.right = split[1];
+            return node.update();
+        }
+        if (node.entry.compareTo(root.entry) < 0) {
+            root.left = insert(root.left, node);
+        } else {
+            root.right = insert(root.right, node);
+        }
+        return root.update();
+    }
+
+    private static Node remove(Node root, Entry entry) {
+        if (root == null) {
+            return null;
+        }
+        int comparison = entry.compareTo(root.entry);
+        if (comparison == 0) {
+            return merge(root.left, root.right);
+        }
+        if (comparison < 0) {
+            root.left = remove(root.left, entry);
+        } else {
+            root.right = remove(root.right, entry);
+        }
+        return root.update();
+    }
+
+    /**
+     * Splits the given tree into the nodes before the given entry and the nodes after it
+     */
+    private static Node[] split(Node root, Entry entry) {
+        if (root == null) {
+            return new Node[2];
+        }
+        if (root.entry.compareTo(entry) < 0) {
+            Node[] split = split(root.right, entry);
+            root.right = split[0];
+            split[0] = root.update();
+            return split;
+        }
+        Node[] split = split(root.left, entry);
+        root.left = split[1];
+        split[1] = root.update();
+        return split;
+    }
+
+    /**
+     * Merges the given trees, where every node of the first tree comes before every node of the second one
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return first.update();
+        }
+        second.left = merge(first, second.left);
+        return second.update();
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * A profile and the values it is ordered by
+     */
+    private static final class Entry implements Comparable<Entry> {
+
+        /**
+         * Orders profiles which have the same values by their keys
+         */
+        private static final Comparator<String> KEYS = Comparator.nullsFirst(Comparator.naturalOrder());
+
+        /**
+         * The key of the profile
+         */
+        private final String key;
+
+        /**
+         * The profile
+         */
+        private final LauncherProfile profile;
+
+        /**
+         * The name of the profile, if the view is sorted by name
+         */
+        private final String name;
+
+        /**
+         * The time the profile was last used at, negated so that recent profiles come first, if the view is
+         * sorted by last use
+         */
+        private final long lastUsed;
+
+        Entry(String key, LauncherProfile profile, ProfileSorting sorting) {
+            this.key = key;
+            this.profile = profile;
+            if (sorting == ProfileSorting.BY_NAME) {
+                name = profile.getName() == null ? "" : profile.getName();
+                lastUsed = 0;
+            } else {
+                Date date = profile.getLastUsed();
+                name = null;
+                lastUsed = date == null ? Long.MAX_VALUE : -date.getTime();
+            }
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int comparison = name == null ? Long.compare(lastUsed, other.lastUsed)
+                    : String.CASE_INSENSITIVE_ORDER.compare(name, other.name);
+            return comparison != 0 ? comparison : KEYS.compare(key, other.key);
+        }
+    }
+
+    /**
+     * A node of the tree. The tree is a treap: a binary search tree by entry, which is kept balanced by heap
+     * ordering random priorities. Every node records the size of its subtree to find positions.
+     */
+    private static final class Node {
+
+        private final Entry entry;
+
+        private final int priority = ThreadLocalRandom.current().nextInt();
+
+        private Node left;
+
+        private Node right;
+
+        private int size = 1;
+
+        Node(Entry entry) {
+            this.entry = entry;
+        }
+
+        Node update() {
+            size = 1 + size(left) + size(right);
+            return this;
+        }
+    }
+
+}
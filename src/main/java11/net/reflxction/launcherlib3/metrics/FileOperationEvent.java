@@ -0,0 +1,88 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.File;
+
+/**
+ * The flight recorder event of a launcher file operation. The duration of the event is the duration of the
+ * operation.
+ */
+@Category("Minecraft Launcher Library")
+abstract class FileOperationEvent extends Event implements LauncherEvent {
+
+    @Label("Path")
+    @Description("The launcher file")
+    String path;
+
+    @Label("Bytes")
+    @Description("The number of bytes which were read or written")
+    @DataAmount
+    long bytes;
+
+    @Label("Profiles")
+    @Description("The number of profiles which were read or written")
+    int profiles;
+
+    @Override
+    public void complete(File file, long bytes, int profiles) {
+        end();
+        if (shouldCommit()) {
+            this.path = file == null ? null : file.getPath();
+            this.bytes = bytes;
+            this.profiles = profiles;
+            commit();
+        }
+    }
+
+    @Name("net.reflxction.launcherlib3.Load")
+    @Label("Launcher File Load")
+    @Description("The first read and parse of a launcher file")
+    static final class Load extends FileOperationEvent {
+    }
+
+    @Name("net.reflxction.launcherlib3.Reload")
+    @Label("Launcher File Reload")
+    @Description("An explicit read and parse of a launcher file which was already loaded")
+    static final class Reload extends FileOperationEvent {
+    }
+
+    @Name("net.reflxction.launcherlib3.WatchReload")
+    @Label("Launcher File Watch Reload")
+    @Description("A reload of a launcher file which was changed by another program")
+    static final class WatchReload extends FileOperationEvent {
+    }
+
+    @Name("net.reflxction.launcherlib3.Save")
+    @Label("Launcher File Save")
+    @Description("An encode and write of the profiles of a launcher file")
+    static final class Save extends FileOperationEvent {
+    }
+
+    @Name("net.reflxction.launcherlib3.ParseSection")
+    @Label("Launcher Section Parse")
+    @Description("A deserialization of a lazy section of a launcher file, on its first access")
+    static final class ParseSection extends FileOperationEvent {
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * * Copyright 2018-2019 github.com/ReflxctionDev
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.reflxction.launcherlib3.metrics;
+
+/**
+ * Starts the Java Flight Recorder events of the launcher file operations: loads, reloads, saves, reloads triggered
+ * by the {@link net.reflxction.launcherlib3.data.LauncherFileWatcher watcher}, and parses of
+ * {@link net.reflxction.launcherlib3.data.LazySection lazy sections}.
+ * <p>
+ * This is the Java 11 version of this class, which records the events under the "Minecraft Launcher Library"
+ * category. While the type of an event is not enabled in a running recording, starting the event only checks
+ * whether it is enabled.
+ */
+public final class LauncherEvents {
+
+    private LauncherEvents() {
+    }
+
+    /**
+     * Starts the event of a first load of a launcher file
+     *
+     * @return The started event, or {@link LauncherEvent#NONE} if loads are not recorded
+     */
+    public static LauncherEvent beginLoad() {
+        return begin(new FileOperationEvent.Load());
+    }
+
+    /**
+     * Starts the event of an explicit reload of a launcher file
+     *
+     * @return The started event, or {@link LauncherEvent#NONE} if reloads are not recorded
+     */
+    public static LauncherEvent beginReload() {
+        return begin(new FileOperationEvent.Reload());
+    }
+
+    /**
+     * Starts the event of a reload of a launcher file which was changed by another program
+     *
+     * @return The started event, or {@link LauncherEvent#NONE} if these reloads are not recorded
+     */
+    public static LauncherEvent beginWatchReload() {
+        return begin(new FileOperationEvent.WatchReload());
+    }
+
+    /**
+     * Starts the event of a save of the profiles of a launcher file
+     *
+     * @return The started event, or {@link LauncherEvent#NONE} if saves are not recorded
+     */
+    public static LauncherEvent beginSave() {
+        return begin(new FileOperationEvent.Save());
+    }
+
+    /**
+     * Starts the event of a parse of a lazy section
+     *
+     * @return The started event, or {@link LauncherEvent#NONE} if section parses are not recorded
+     */
+    public static LauncherEvent beginParseSection() {
+        return begin(new FileOperationEvent.ParseSection());
+    }
+
+    private static LauncherEvent begin(FileOperationEvent event) {
+        // The event does not escape when it is disabled, so its allocation is eliminated
+        if (!event.isEnabled()) {
+            return LauncherEvent.NONE;
+        }
+        event.begin();
+        return event;
+    }
+
+}